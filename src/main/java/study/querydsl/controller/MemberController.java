@@ -1,15 +1,46 @@
 package study.querydsl.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
+import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.aggregate.MemberAgeAggregates;
+import study.querydsl.repository.importer.MemberImportResult;
+import study.querydsl.repository.importer.MemberImporter;
+import study.querydsl.repository.searchtable.MemberSearchTable;
+import study.querydsl.repository.searchtable.MemberSearchTableRepository;
+import study.querydsl.repository.shard.ShardedMemberRepository;
+import study.querydsl.repository.sql.MemberSqlRepository;
+import study.querydsl.repository.support.TableVersions;
+import study.querydsl.repository.transfer.MemberTeamTransfer;
+import study.querydsl.repository.transfer.MemberTransferResult;
+import study.querydsl.web.MemberSearchAdmission;
 
 @RestController
 @RequiredArgsConstructor
@@ -17,19 +48,140 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final TableVersions tableVersions;
+    private final MemberImporter memberImporter;
+    private final MemberSearchAdmission admission;
+    private final MemberAgeAggregates memberAgeAggregates;
+    private final MemberSearchTable memberSearchTable;
+    private final MemberSearchTableRepository memberSearchTableRepository;
+    private final MemberSqlRepository memberSqlRepository;
+    private final ObjectProvider<ShardedMemberRepository> shardedMemberRepository;
+    private final MemberTeamTransfer memberTeamTransfer;
     
+    /**
+     * If-None-Match가 현재 ETag와 같으면 DB를 조회하지 않고 304를 반환한다.
+     * 조회는 비용 등급별 동시 실행 한도 안에서 실행한다. (MemberSearchAdmission)
+     * 부하가 높을 때 조건 없는 조회는 앞에서부터 downgrade-limit 건만 반환한다.
+     */
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-        return memberJpaRepository.search(condition);
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition, WebRequest request,
+        HttpServletResponse response) {
+        if (request.checkNotModified(etag("v1", condition, null, request))) {
+            return null;
+        }
+        return admission.execute(admission.estimate(condition, null),
+            () -> sharded("v1").map(shards -> shards.search(condition))
+                .orElseGet(() -> memberSearchTable.serves("v1") ? memberSearchTableRepository.search(condition)
+                    : memberSqlRepository.serves("v1") ? memberSqlRepository.search(condition)
+                    : memberJpaRepository.search(condition)),
+            () -> Optional.of(sharded("v1")
+                .map(shards -> shards.search(condition, admission.getDowngradeLimit()))
+                .orElseGet(() -> memberJpaRepository.search(condition, admission.getDowngradeLimit()))),
+            response);
     }
     
+    /**
+     * 부하가 높을 때 조건 없는 조회는 count 쿼리 대신 캐시된 전체 회원 수를 쓴다.
+     */
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+        WebRequest request, HttpServletResponse response) {
+        if (request.checkNotModified(etag("v2", condition, pageable, request))) {
+            return null;
+        }
+        return admission.execute(admission.estimate(condition, pageable),
+            () -> searchRepository("v2").searchPageSimple(condition, pageable),
+            () -> searchWithCachedCount("v2", condition, pageable),
+            response);
     }
     
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+        WebRequest request, HttpServletResponse response) {
+        if (request.checkNotModified(etag("v3", condition, pageable, request))) {
+            return null;
+        }
+        return admission.execute(admission.estimate(condition, pageable),
+            () -> searchRepository("v3").searchPageComplex(condition, pageable),
+            () -> searchWithCachedCount("v3", condition, pageable),
+            response);
+    }
+    
+    /**
+     * 요청 본문을 스트림으로 읽어 저장한다. (application/x-ndjson, text/csv)
+     */
+    @PostMapping(value = "/v1/members/import", consumes = {"application/x-ndjson", "text/csv"})
+    public MemberImportResult importMembers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+        InputStream body) throws IOException {
+        MemberImporter.Format format = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+            ? MemberImporter.Format.NDJSON : MemberImporter.Format.CSV;
+        try {
+            return memberImporter.importMembers(body, format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 요청 본문의 회원 id 목록을 teamId 팀으로 옮긴다. 회원 엔티티를 읽지 않고 벌크 update로 처리한다.
+     * 팀이 없으면 404, id 목록에 null 이 있으면 400
+     */
+    @PostMapping("/v1/teams/{teamId}/members")
+    public MemberTransferResult transferMembers(@PathVariable Long teamId, @RequestBody List<Long> memberIds) {
+        try {
+            return memberTeamTransfer.transfer(memberIds, teamId);
+        } catch (EntityNotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+    
+    private Optional<Page<MemberTeamDto>> searchWithCachedCount(String endpoint, MemberSearchCondition condition,
+        Pageable pageable) {
+        // 캐시된 전체 회원 수는 기본 DB 기준이므로 샤드 조회에는 쓸 수 없다.
+        if (!admission.isUnfiltered(condition) || sharded(endpoint).isPresent()) {
+            return Optional.empty();
+        }
+        return memberAgeAggregates.memberCount()
+            .map(count -> searchRepository(endpoint).searchPage(condition, pageable, () -> count));
+    }
+    
+    /**
+     * member.sharding.endpoints 에 있는 엔드포인트는 샤드에서 (member.sharding.enabled=true 일 때),
+     * member.search-table.endpoints 에 있는 엔드포인트는 비정규화 테이블(member_search)에서,
+     * member.sql-search.endpoints 에 있는 엔드포인트는 querydsl-sql 로 조회한다.
+     */
+    private MemberRepositoryCustom searchRepository(String endpoint) {
+        Optional<ShardedMemberRepository> sharded = sharded(endpoint);
+        if (sharded.isPresent()) {
+            return sharded.get();
+        }
+        if (memberSearchTable.serves(endpoint)) {
+            return memberSearchTableRepository;
+        }
+        return memberSqlRepository.serves(endpoint) ? memberSqlRepository : memberRepository;
+    }
+    
+    private Optional<ShardedMemberRepository> sharded(String endpoint) {
+        return Optional.ofNullable(shardedMemberRepository.getIfAvailable())
+            .filter(shards -> shards.serves(endpoint));
+    }
+    
+    /**
+     * 검색 조건, 페이지 정보, 응답 포맷(Accept), member/team 테이블 버전으로 ETag를 만든다.
+     * 테이블 버전은 인스턴스 메모리 값이므로 기동 epoch 을 같이 넣는다. (재시작 전이나 다른 인스턴스의 ETag와 겹치지 않게)
+     * 버전은 조회 전에 읽어야 조회 도중 변경이 생겨도 오래된 ETag가 재사용되지 않는다.
+     */
+    private String etag(String endpoint, MemberSearchCondition condition, Pageable pageable,
+        WebRequest request) {
+        String key = endpoint
+            + "|" + condition
+            + "|" + pageable
+            + "|" + request.getHeader(HttpHeaders.ACCEPT)
+            + "|" + tableVersions.getEpoch()
+            + "|" + tableVersions.get(Member.class)
+            + "|" + tableVersions.get(Team.class);
+        return "\"" + DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) + "\"";
     }
 }
@@ -1,25 +1,36 @@
 package study.querydsl.controller;
 
-import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Required;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.startup.StartupTask;
 
+/**
+ * 샘플 데이터. 애플리케이션이 뜬 뒤 백그라운드에서 넣는다. (StartupTaskRunner)
+ * 다른 시작 작업(인덱스 재구성 등)이 이 데이터를 보도록 가장 먼저 실행한다.
+ */
 @Profile("local")
 @Component
+@Order(0)
 @RequiredArgsConstructor
-public class initMember {
+public class initMember implements StartupTask {
     
     private final InitMemberService initMemberService;
     
-    @PostConstruct
-    public void init() {
+    @Override
+    public String getName() {
+        return "initMember";
+    }
+    
+    @Override
+    public void run() {
         initMemberService.init();
     }
     
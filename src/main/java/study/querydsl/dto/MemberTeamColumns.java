@@ -0,0 +1,218 @@
+package study.querydsl.dto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * MemberTeamDto 목록을 컬럼 배열로 담는 결과 컨테이너
+ * 행마다 DTO 객체, Long 박싱, 같은 팀 이름 참조를 두지 않고 long[] / int[] 배열과 팀 사전으로 저장한다.
+ * 팀은 (teamId, teamName) 사전의 인덱스(teamCodes)로 저장하고 팀이 없으면 -1 이다.
+ *
+ * 행은 Row 뷰로 읽는다. Row는 인덱스만 가진 가벼운 객체라 필요할 때만 toDto()로 MemberTeamDto를 만든다.
+ */
+public class MemberTeamColumns implements Iterable<MemberTeamColumns.Row> {
+    
+    private static final int NO_TEAM = -1;
+    
+    private final int size;
+    private final long[] memberIds;
+    private final String[] usernames;
+    private final int[] ages;
+    private final int[] teamCodes;
+    private final long[] teamIds;
+    private final String[] teamNames;
+    
+    private MemberTeamColumns(int size, long[] memberIds, String[] usernames, int[] ages, int[] teamCodes,
+        long[] teamIds, String[] teamNames) {
+        this.size = size;
+        this.memberIds = memberIds;
+        this.usernames = usernames;
+        this.ages = ages;
+        this.teamCodes = teamCodes;
+        this.teamIds = teamIds;
+        this.teamNames = teamNames;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public static MemberTeamColumns of(List<MemberTeamDto> rows) {
+        Builder builder = builder();
+        rows.forEach(builder::add);
+        return builder.build();
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public Row get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return new Row(index);
+    }
+    
+    public long memberId(int index) {
+        return memberIds[index];
+    }
+    
+    public String username(int index) {
+        return usernames[index];
+    }
+    
+    public int age(int index) {
+        return ages[index];
+    }
+    
+    public Long teamId(int index) {
+        int code = teamCodes[index];
+        return code == NO_TEAM ? null : teamIds[code];
+    }
+    
+    public String teamName(int index) {
+        int code = teamCodes[index];
+        return code == NO_TEAM ? null : teamNames[code];
+    }
+    
+    /**
+     * 결과에 나온 팀 수 (사전 크기)
+     */
+    public int teamCount() {
+        return teamIds.length;
+    }
+    
+    /**
+     * 아직 DB에 반영되지 않은 증감값을 더할 때 쓴다. (MemberAgeWriteBehind)
+     */
+    public void addAge(int index, int delta) {
+        ages[index] += delta;
+    }
+    
+    public List<MemberTeamDto> toDtos() {
+        List<MemberTeamDto> dtos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            dtos.add(new Row(i).toDto());
+        }
+        return dtos;
+    }
+    
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+            private int next;
+            
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+            
+            @Override
+            public Row next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return new Row(next++);
+            }
+        };
+    }
+    
+    public class Row {
+        
+        private final int index;
+        
+        private Row(int index) {
+            this.index = index;
+        }
+        
+        public int getIndex() {
+            return index;
+        }
+        
+        public long getMemberId() {
+            return memberId(index);
+        }
+        
+        public String getUsername() {
+            return username(index);
+        }
+        
+        public int getAge() {
+            return age(index);
+        }
+        
+        public Long getTeamId() {
+            return teamId(index);
+        }
+        
+        public String getTeamName() {
+            return teamName(index);
+        }
+        
+        public MemberTeamDto toDto() {
+            return new MemberTeamDto(getMemberId(), getUsername(), getAge(), getTeamId(), getTeamName());
+        }
+    }
+    
+    /**
+     * 배열을 두 배씩 늘리며 행을 추가한다. build() 때 크기에 맞게 자른다.
+     */
+    public static class Builder {
+        
+        private int size;
+        private long[] memberIds = new long[16];
+        private String[] usernames = new String[16];
+        private int[] ages = new int[16];
+        private int[] teamCodes = new int[16];
+        private final Map<Long, Integer> teamCodeById = new HashMap<>();
+        private final List<Long> teamIds = new ArrayList<>();
+        private final List<String> teamNames = new ArrayList<>();
+        
+        private Builder() {
+        }
+        
+        public Builder add(long memberId, String username, int age, Long teamId, String teamName) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                usernames = Arrays.copyOf(usernames, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamCodes = Arrays.copyOf(teamCodes, capacity);
+            }
+            memberIds[size] = memberId;
+            usernames[size] = username;
+            ages[size] = age;
+            teamCodes[size] = teamId == null ? NO_TEAM : teamCodeById.computeIfAbsent(teamId, id -> {
+                teamIds.add(id);
+                teamNames.add(teamName);
+                return teamIds.size() - 1;
+            });
+            size++;
+            return this;
+        }
+        
+        public Builder add(MemberTeamDto dto) {
+            return add(dto.getMemberId(), dto.getUsername(), dto.getAge(), dto.getTeamId(), dto.getTeamName());
+        }
+        
+        public MemberTeamColumns build() {
+            return new MemberTeamColumns(size,
+                Arrays.copyOf(memberIds, size),
+                Arrays.copyOf(usernames, size),
+                Arrays.copyOf(ages, size),
+                Arrays.copyOf(teamCodes, size),
+                teamIds.stream().mapToLong(Long::longValue).toArray(),
+                teamNames.toArray(new String[0]));
+        }
+    }
+}
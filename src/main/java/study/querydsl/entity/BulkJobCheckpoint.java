@@ -0,0 +1,50 @@
+package study.querydsl.entity;
+
+import java.time.LocalDateTime;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 분할 벌크 작업의 진행 위치
+ * 청크를 처리하는 트랜잭션 안에서 함께 갱신되므로 중단된 작업은 마지막으로 커밋된 청크 다음부터 다시 시작할 수 있다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class BulkJobCheckpoint {
+    
+    @Id
+    private String jobName;
+    private long lastId;
+    private long affectedRows;
+    private boolean completed;
+    private LocalDateTime updatedAt;
+    
+    public BulkJobCheckpoint(String jobName) {
+        this.jobName = jobName;
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    public void advance(long lastId, long affectedRows) {
+        this.lastId = lastId;
+        this.affectedRows += affectedRows;
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    public void complete() {
+        this.completed = true;
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    public void restart() {
+        this.lastId = 0;
+        this.affectedRows = 0;
+        this.completed = false;
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 회원 검색용 비정규화 테이블 (member + team.name)
+ * MemberSearchTable이 Member/Team 변경에 맞춰 같은 트랜잭션에서 JDBC로 갱신한다. 엔티티로 저장하지 않는다.
+ * 인덱스는 MemberSearchCondition 조건에 맞췄다. (username, usernamePrefix / teamName + age / age)
+ */
+@Entity
+@Table(name = "member_search", indexes = {
+    @Index(name = "member_search_username", columnList = "username"),
+    @Index(name = "member_search_team_name_age", columnList = "team_name, age"),
+    @Index(name = "member_search_age", columnList = "age"),
+    @Index(name = "member_search_team_id", columnList = "team_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberSearchRow {
+    
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+    
+    @Column(name = "username")
+    private String username;
+    
+    @Column(name = "age")
+    private int age;
+    
+    @Column(name = "team_id")
+    private Long teamId;
+    
+    @Column(name = "team_name")
+    private String teamName;
+}
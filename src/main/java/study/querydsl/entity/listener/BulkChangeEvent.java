@@ -0,0 +1,38 @@
+package study.querydsl.entity.listener;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 벌크 연산(update, delete) 이벤트
+ * 벌크 연산은 영속성 컨텍스트와 엔티티 리스너를 거치지 않으므로 BulkQueryExecutor가 직접 발행한다.
+ * 바뀐 행의 id 구간 [minId, maxId] 를 알면 같이 넘긴다. 모르면 null (테이블 전체가 바뀌었을 수 있음)
+ */
+@Getter
+@ToString
+public class BulkChangeEvent {
+    
+    private final Class<?> entityType;
+    private final long affectedRows;
+    private final Long minId;
+    private final Long maxId;
+    
+    public BulkChangeEvent(Class<?> entityType, long affectedRows) {
+        this(entityType, affectedRows, null, null);
+    }
+    
+    public BulkChangeEvent(Class<?> entityType, long affectedRows, Long minId, Long maxId) {
+        this.entityType = entityType;
+        this.affectedRows = affectedRows;
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+    
+    public boolean isFor(Class<?> type) {
+        return entityType.equals(type);
+    }
+    
+    public boolean hasIdRange() {
+        return minId != null && maxId != null;
+    }
+}
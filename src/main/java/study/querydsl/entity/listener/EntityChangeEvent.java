@@ -0,0 +1,26 @@
+package study.querydsl.entity.listener;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 엔티티 단건 변경 이벤트
+ * EntityChangeListener가 flush 시점에 발행한다. 트랜잭션 커밋 전이므로 롤백될 수 있다는 점에 주의.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class EntityChangeEvent {
+    
+    private final Object entity;
+    private final Type type;
+    
+    public enum Type {
+        PERSIST, UPDATE, REMOVE
+    }
+    
+    public boolean isFor(Class<?> entityType) {
+        return entityType.isInstance(entity);
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.entity.listener;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import study.querydsl.entity.listener.EntityChangeEvent.Type;
+
+/**
+ * 엔티티 변경을 스프링 이벤트로 전달하는 JPA 엔티티 리스너
+ * 하이버네이트가 SpringBeanContainer를 통해 생성하므로 스프링 빈을 주입받을 수 있다.
+ */
+public class EntityChangeListener {
+    
+    private final ApplicationEventPublisher publisher;
+    
+    public EntityChangeListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+    
+    @PostPersist
+    public void postPersist(Object entity) {
+        publisher.publishEvent(new EntityChangeEvent(entity, Type.PERSIST));
+    }
+    
+    @PostUpdate
+    public void postUpdate(Object entity) {
+        publisher.publishEvent(new EntityChangeEvent(entity, Type.UPDATE));
+    }
+    
+    @PostRemove
+    public void postRemove(Object entity) {
+        publisher.publishEvent(new EntityChangeEvent(entity, Type.REMOVE));
+    }
+}
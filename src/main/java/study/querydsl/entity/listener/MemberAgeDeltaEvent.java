@@ -0,0 +1,21 @@
+package study.querydsl.entity.listener;
+
+import lombok.Getter;
+import lombok.ToString;
+import study.querydsl.entity.Member;
+
+/**
+ * member.age 만 더하거나 뺀 벌크 변경 (MemberAgeWriteBehind flush)
+ * 행 수와 팀은 그대로이고 age 합계가 ageDelta 만큼 바뀐다. 구독자는 다시 읽지 않고 합계만 고칠 수 있다. (MemberAgeAggregates)
+ */
+@Getter
+@ToString(callSuper = true)
+public class MemberAgeDeltaEvent extends BulkChangeEvent {
+    
+    private final long ageDelta;
+    
+    public MemberAgeDeltaEvent(long affectedRows, long minId, long maxId, long ageDelta) {
+        super(Member.class, affectedRows, minId, maxId);
+        this.ageDelta = ageDelta;
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * MemberController 요청 한 번 (MemberHttpEventInterceptor 가 기록한다)
+ */
+@Name("study.querydsl.MemberHttpRequest")
+@Label("Member HTTP Request")
+@Category({"Querydsl", "HTTP"})
+@Description("MemberController request handling")
+@StackTrace(false)
+public class MemberHttpEvent extends jdk.jfr.Event {
+    
+    @Label("HTTP Method")
+    public String httpMethod;
+    
+    @Label("URI")
+    public String uri;
+    
+    @Label("Handler")
+    public String handler;
+    
+    @Label("Condition Shape")
+    @Description("Request parameter names other than page, size and sort")
+    public String conditionShape;
+    
+    @Label("Page Number")
+    @Description("-1 if not given")
+    public int pageNumber = -1;
+    
+    @Label("Page Size")
+    @Description("-1 if not given")
+    public int pageSize = -1;
+    
+    @Label("Status")
+    public int status;
+    
+    @Label("Failed")
+    public boolean failed;
+}
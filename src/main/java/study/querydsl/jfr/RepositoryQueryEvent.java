@@ -0,0 +1,145 @@
+package study.querydsl.jfr;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * 리포지토리 조회 한 번 (컨텐츠 쿼리 + count 쿼리)
+ * 기록 중이 아니면 begin/end/commit 은 아무 일도 하지 않고, 조건 모양 문자열 등은 shouldCommit() 일 때만 만든다.
+ *
+ * <pre>
+ * RepositoryQueryEvent event = RepositoryQueryEvent.start(getClass(), "applyPagination", pageable);
+ * Page&lt;T&gt; page = PageableExecutionUtils.getPage(content, pageable, event.counted(countQuery::fetchCount));
+ * event.finish(page, () -&gt; RepositoryQueryEvent.shapeOf(where));
+ * </pre>
+ */
+@Name("study.querydsl.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Querydsl", "Repository"})
+@Description("Querydsl repository method execution")
+@StackTrace(false)
+public class RepositoryQueryEvent extends jdk.jfr.Event {
+    
+    @Label("Repository")
+    String repository;
+    
+    @Label("Method")
+    String method;
+    
+    @Label("Condition Shape")
+    String conditionShape;
+    
+    @Label("Page Number")
+    @Description("-1 if not paged")
+    int pageNumber = -1;
+    
+    @Label("Page Size")
+    @Description("-1 if not paged")
+    int pageSize = -1;
+    
+    @Label("Rows")
+    long rows;
+    
+    @Label("Count Skipped")
+    @Description("Paged query returned without running the count query")
+    boolean countSkipped;
+    
+    private final transient Class<?> repositoryType;
+    private final transient Pageable pageable;
+    private transient boolean countExecuted;
+    
+    private RepositoryQueryEvent(Class<?> repositoryType, String method, Pageable pageable) {
+        this.repositoryType = repositoryType;
+        this.method = method;
+        this.pageable = pageable;
+    }
+    
+    /**
+     * @param pageable 페이징 조회가 아니면 null
+     */
+    public static RepositoryQueryEvent start(Class<?> repositoryType, String method, Pageable pageable) {
+        RepositoryQueryEvent event = new RepositoryQueryEvent(repositoryType, method, pageable);
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * count 쿼리를 감싸서 실제로 실행됐는지 기록한다.
+     */
+    public LongSupplier counted(LongSupplier count) {
+        return () -> {
+            countExecuted = true;
+            return count.getAsLong();
+        };
+    }
+    
+    /**
+     * PageImpl 처럼 count 쿼리를 항상 직접 실행하는 경우
+     */
+    public void countExecuted() {
+        countExecuted = true;
+    }
+    
+    /**
+     * @param result 예외로 끝났으면 null
+     */
+    public void finish(Object result, Supplier<String> conditionShape) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        repository = repositoryType.getSimpleName();
+        this.conditionShape = conditionShape.get();
+        if (pageable != null && pageable.isPaged()) {
+            pageNumber = pageable.getPageNumber();
+            pageSize = pageable.getPageSize();
+        }
+        countSkipped = pageable != null && !countExecuted;
+        if (result instanceof Page) {
+            rows = ((Page<?>) result).getNumberOfElements();
+        } else if (result instanceof Collection) {
+            rows = ((Collection<?>) result).size();
+        }
+        commit();
+    }
+    
+    /**
+     * where 절에 쓰인 경로와 연산자 (값은 뺀다)
+     * 예) member.age >= 10 and member.username like 'a%' -> "member1.age GOE, member1.username STARTS_WITH"
+     */
+    public static String shapeOf(Predicate where) {
+        Set<String> shape = new TreeSet<>();
+        collect(where, shape);
+        return shape.isEmpty() ? "(none)" : String.join(", ", shape);
+    }
+    
+    private static void collect(Expression<?> expression, Set<String> shape) {
+        if (!(expression instanceof Operation)) {
+            return;
+        }
+        Operation<?> operation = (Operation<?>) expression;
+        if (operation.getOperator() == Ops.AND || operation.getOperator() == Ops.OR
+            || operation.getOperator() == Ops.NOT) {
+            operation.getArgs().forEach(arg -> collect(arg, shape));
+        } else if (!operation.getArgs().isEmpty() && operation.getArg(0) instanceof Path) {
+            shape.add(operation.getArg(0) + " " + operation.getOperator().name());
+        } else {
+            shape.add(operation.getOperator().name());
+        }
+    }
+}
@@ -6,9 +6,13 @@ import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import javax.persistence.EntityManager;
@@ -19,6 +23,10 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.advisor.SearchWorkload;
+import study.querydsl.repository.dictionary.TeamDictionary;
+import study.querydsl.repository.dictionary.TeamDictionary.TeamNames;
+import study.querydsl.repository.index.UsernamePrefixIndex;
 import study.querydsl.entity.QTeam;
 
 @Repository
@@ -26,10 +34,17 @@ public class MemberJpaRepository {
     
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final UsernamePrefixIndex usernamePrefixIndex;
+    private final TeamDictionary teamDictionary;
+    private final SearchWorkload searchWorkload;
     
-    public MemberJpaRepository(EntityManager em, JPAQueryFactory jpaQueryFactory){
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory jpaQueryFactory,
+        UsernamePrefixIndex usernamePrefixIndex, TeamDictionary teamDictionary, SearchWorkload searchWorkload){
         this.em = em;
         this.queryFactory = jpaQueryFactory;
+        this.usernamePrefixIndex = usernamePrefixIndex;
+        this.teamDictionary = teamDictionary;
+        this.searchWorkload = searchWorkload;
     }
     
     public void save(Member member){
@@ -65,6 +80,10 @@ public class MemberJpaRepository {
             builder.and(member.username.eq(condition.getUsername()));
         }
         
+        if(hasText(condition.getUsernamePrefix())){
+            builder.and(usernamePrefix(condition.getUsernamePrefix()));
+        }
+        
         if(hasText(condition.getTeamName())){
             builder.and(team.name.eq(condition.getTeamName()));
         }
@@ -90,7 +109,50 @@ public class MemberJpaRepository {
             .fetch();
     }
     
+    /**
+     * 팀 사전(TeamDictionary)을 쓸 수 있으면 team 조인 없이 조회하고 teamName은 사전에서 채운다.
+     */
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        long start = System.nanoTime();
+        try {
+            return searchStored(condition);
+        } finally {
+            searchWorkload.record(condition, null, System.nanoTime() - start);
+        }
+    }
+    
+    private List<MemberTeamDto> searchStored(MemberSearchCondition condition) {
+        Optional<TeamNames> teams = teamDictionary.current();
+        if (teams.isPresent()) {
+            return toDtos(joinFreeQuery(condition, teams.get()).fetch(), teams.get());
+        }
+        
+        return queryFactory
+            .select(new QMemberTeamDto(
+                member.id,
+                member.username,
+                member.age,
+                team.id,
+                team.name))
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()))
+            .fetch();
+    }
+    
+    /**
+     * search와 같지만 앞에서부터 limit 건까지만 가져온다. (부하가 높을 때 전체 조회 대신 사용, MemberSearchAdmission)
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition, long limit) {
+        Optional<TeamNames> teams = teamDictionary.current();
+        if (teams.isPresent()) {
+            return toDtos(joinFreeQuery(condition, teams.get()).limit(limit).fetch(), teams.get());
+        }
+        
         return queryFactory
             .select(new QMemberTeamDto(
                 member.id,
@@ -101,12 +163,35 @@ public class MemberJpaRepository {
             .from(member)
             .leftJoin(member.team, team)
             .where(usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe()))
+            .limit(limit)
             .fetch();
     }
     
+    private JPAQuery<Tuple> joinFreeQuery(MemberSearchCondition condition, TeamNames teams) {
+        return queryFactory
+            .select(member.id, member.username, member.age, member.team.id)
+            .from(member)
+            .where(usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
+                teamIdIn(condition.getTeamName(), teams),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()));
+    }
+    
+    private List<MemberTeamDto> toDtos(List<Tuple> rows, TeamNames teams) {
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Long teamId = row.get(member.team.id);
+            result.add(new MemberTeamDto(row.get(member.id), row.get(member.username), row.get(member.age),
+                teamId, teams.nameOf(teamId)));
+        }
+        return result;
+    }
+    
     private Predicate ageLoe(Integer ageLoe) {
         return ageLoe == null ? null : member.age.loe(ageLoe);
     }
@@ -119,9 +204,27 @@ public class MemberJpaRepository {
         return hasText(teamName) ? team.name.eq(teamName) : null;
     }
     
+    private Predicate teamIdIn(String teamName, TeamNames teams) {
+        if (!hasText(teamName)) {
+            return null;
+        }
+        List<Long> teamIds = teams.idsOf(teamName);
+        return teamIds.isEmpty() ? Expressions.FALSE.isTrue() : member.team.id.in(teamIds);
+    }
+    
     private Predicate usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
+    
+    private Predicate usernamePrefix(String usernamePrefix) {
+        if (!hasText(usernamePrefix)) {
+            return null;
+        }
+        return usernamePrefixIndex.lookup(usernamePrefix)
+            .map(ids -> ids.isEmpty() ? Expressions.FALSE.isTrue()
+                : member.id.in(ids).and(member.username.startsWith(usernamePrefix)))
+            .orElseGet(() -> member.username.startsWith(usernamePrefix));
+    }
 }
 
 
@@ -1,13 +1,24 @@
 package study.querydsl.repository;
 
 import java.util.List;
+import java.util.function.LongSupplier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable, LongSupplier total);
+    List<MemberTeamDto> searchRange(MemberSearchCondition condition, long fromId, long toId);
+    
+    /**
+     * search와 같은 결과를 member id 순서로 컬럼 배열에 담는다. 큰 결과를 메모리에 들고 있어야 할 때 쓴다.
+     */
+    default MemberTeamColumns searchColumns(MemberSearchCondition condition) {
+        return MemberTeamColumns.of(search(condition));
+    }
 }
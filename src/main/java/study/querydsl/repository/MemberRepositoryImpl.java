@@ -5,21 +5,36 @@ import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import javax.persistence.EntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.jfr.RepositoryQueryEvent;
+import study.querydsl.repository.advisor.SearchWorkload;
+import study.querydsl.repository.dictionary.TeamDictionary;
+import study.querydsl.repository.dictionary.TeamDictionary.TeamNames;
+import study.querydsl.repository.hot.MemberHotTier;
+import study.querydsl.repository.index.UsernamePrefixIndex;
+import study.querydsl.repository.writebehind.MemberAgeWriteBehind;
 
 /**
  * QuerydslRepositorySupport
@@ -35,21 +50,85 @@ import study.querydsl.entity.Member;
 
 public class MemberRepositoryImpl extends QuerydslRepositorySupport implements MemberRepositoryCustom {
     
+    private static final int COLUMNS_CHUNK_SIZE = 10000;
+    
     private final JPAQueryFactory queryFactory;
+    private final UsernamePrefixIndex usernamePrefixIndex;
+    private final MemberHotTier memberHotTier;
+    private final MemberAgeWriteBehind memberAgeWriteBehind;
+    private final TeamDictionary teamDictionary;
+    private final SearchWorkload searchWorkload;
     
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, UsernamePrefixIndex usernamePrefixIndex,
+        MemberHotTier memberHotTier, MemberAgeWriteBehind memberAgeWriteBehind, TeamDictionary teamDictionary,
+        SearchWorkload searchWorkload) {
         super(Member.class);
         this.queryFactory = new JPAQueryFactory(em);
+        this.usernamePrefixIndex = usernamePrefixIndex;
+        this.memberHotTier = memberHotTier;
+        this.memberAgeWriteBehind = memberAgeWriteBehind;
+        this.teamDictionary = teamDictionary;
+        this.searchWorkload = searchWorkload;
     }
     
+    /**
+     * 조회 결과 age에는 아직 DB에 반영되지 않은 증감값(MemberAgeWriteBehind)을 더해서 반환한다.
+     * 검색 모양별 호출 수와 지연 시간을 기록한다. (SearchWorkload, 인덱스 추천용 / RepositoryQueryEvent, JFR)
+     */
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return recorded("search", condition, null,
+            event -> memberAgeWriteBehind.read(condition, () -> searchStored(condition)));
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return recorded("searchPageSimple", condition, pageable,
+            event -> memberAgeWriteBehind.read(condition, () -> searchPageSimpleStored(condition, pageable, event)));
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return recorded("searchPageComplex", condition, pageable,
+            event -> memberAgeWriteBehind.read(condition, () -> searchPageComplexStored(condition, pageable, event)));
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable,
+        LongSupplier total) {
+        return recorded("searchPage", condition, pageable,
+            event -> memberAgeWriteBehind.read(condition,
+                () -> searchPageStored(condition, pageable, event.counted(total))));
+    }
+    
+    @Override
+    public List<MemberTeamDto> searchRange(MemberSearchCondition condition, long fromId, long toId) {
+        return memberAgeWriteBehind.read(condition, () -> searchRangeStored(condition, fromId, toId));
+    }
+    
+    @Override
+    public MemberTeamColumns searchColumns(MemberSearchCondition condition) {
+        return memberAgeWriteBehind.readColumns(condition, () -> searchColumnsStored(condition));
+    }
+    
+    private List<MemberTeamDto> searchStored(MemberSearchCondition condition) {
+        
+        Optional<List<MemberTeamDto>> hot = memberHotTier.search(searchConditions(condition));
+        if (hot.isPresent()) {
+            return hot.get();
+        }
+        
+        Optional<TeamNames> teams = teamDictionary.current();
+        if (teams.isPresent()) {
+            return toDtos(joinFreeQuery(condition, teams.get()).fetch(), teams.get());
+        }
         
         EntityManager entityManager = getEntityManager();
         
         List<MemberTeamDto> result = from(member)
             .leftJoin(member.team, team)
             .where(usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
@@ -72,6 +151,7 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
             .from(member)
             .leftJoin(member.team, team)
             .where(usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe()))
@@ -88,9 +168,23 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
      * @param pageable
      * @return
      */
-    @Override
-    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition,
-        Pageable pageable) {
+    private Page<MemberTeamDto> searchPageSimpleStored(MemberSearchCondition condition,
+        Pageable pageable, RepositoryQueryEvent event) {
+        Optional<Page<MemberTeamDto>> hot = memberHotTier.searchPage(pageable, searchConditions(condition));
+        if (hot.isPresent()) {
+            return hot.get();
+        }
+        
+        Optional<TeamNames> teams = teamDictionary.current();
+        if (teams.isPresent()) {
+            List<MemberTeamDto> content = toDtos(joinFreeQuery(condition, teams.get())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch(), teams.get());
+            event.countExecuted();
+            return new PageImpl<>(content, pageable, joinFreeCount(condition, teams.get()));
+        }
+        
         List<MemberTeamDto> content = queryFactory
             .select(new QMemberTeamDto(
                 member.id,
@@ -102,6 +196,7 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe()))
@@ -115,10 +210,12 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe()))
             .fetchCount();
+        event.countExecuted();
         
         return new PageImpl<>(content, pageable, total);
     }
@@ -129,6 +226,7 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe()))
@@ -147,6 +245,7 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe()))
@@ -164,9 +263,23 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
      * @return
      */
     
-    @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition,
-        Pageable pageable) {
+    private Page<MemberTeamDto> searchPageComplexStored(MemberSearchCondition condition,
+        Pageable pageable, RepositoryQueryEvent event) {
+        Optional<Page<MemberTeamDto>> hot = memberHotTier.searchPage(pageable, searchConditions(condition));
+        if (hot.isPresent()) {
+            return hot.get();
+        }
+        
+        Optional<TeamNames> teams = teamDictionary.current();
+        if (teams.isPresent()) {
+            List<MemberTeamDto> content = toDtos(joinFreeQuery(condition, teams.get())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch(), teams.get());
+            return PageableExecutionUtils.getPage(content, pageable,
+                event.counted(() -> joinFreeCount(condition, teams.get())));
+        }
+        
         List<MemberTeamDto> content = queryFactory
             .select(new QMemberTeamDto(
                 member.id,
@@ -178,6 +291,7 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe()))
@@ -191,12 +305,174 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
             );
     
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable, event.counted(countQuery::fetchCount));
+    }
+    
+    /**
+     * count 쿼리 대신 호출하는 쪽이 전체 개수를 준다. (예: 조건이 없으면 캐시된 전체 회원 수)
+     * searchPageComplex와 마찬가지로 마지막 페이지면 total을 호출하지 않는다.
+     */
+    private Page<MemberTeamDto> searchPageStored(MemberSearchCondition condition, Pageable pageable,
+        LongSupplier total) {
+        Optional<TeamNames> teams = teamDictionary.current();
+        if (teams.isPresent()) {
+            List<MemberTeamDto> content = toDtos(joinFreeQuery(condition, teams.get())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch(), teams.get());
+            return PageableExecutionUtils.getPage(content, pageable, total);
+        }
+        
+        List<MemberTeamDto> content = queryFactory
+            .select(new QMemberTeamDto(
+                member.id,
+                member.username,
+                member.age,
+                team.id,
+                team.name))
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(searchConditions(condition))
+            .offset(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .fetch();
+        
+        return PageableExecutionUtils.getPage(content, pageable, total);
+    }
+    
+    /**
+     * search와 같은 조건, 같은 프로젝션을 member id 구간 [fromId, toId) 로 잘라서 id 순서로 조회한다.
+     * 구간을 나눠 여러 커넥션에서 동시에 읽는 내보내기(MemberExporter)용이라 메모리 계층은 거치지 않는다.
+     */
+    private List<MemberTeamDto> searchRangeStored(MemberSearchCondition condition, long fromId, long toId) {
+        Optional<TeamNames> teams = teamDictionary.current();
+        if (teams.isPresent()) {
+            return toDtos(joinFreeQuery(condition, teams.get())
+                .where(member.id.goe(fromId), member.id.lt(toId))
+                .orderBy(member.id.asc())
+                .fetch(), teams.get());
+        }
+        
+        return queryFactory
+            .select(new QMemberTeamDto(
+                member.id,
+                member.username,
+                member.age,
+                team.id,
+                team.name))
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(searchConditions(condition))
+            .where(member.id.goe(fromId), member.id.lt(toId))
+            .orderBy(member.id.asc())
+            .fetch();
+    }
+    
+    /**
+     * DTO 대신 스칼라 Tuple을 member id 기준 키셋 페이징으로 COLUMNS_CHUNK_SIZE 건씩 읽어 컬럼 배열에 바로 붙인다.
+     * 한 번에 들고 있는 Tuple은 한 청크뿐이다. 청크마다 따로 조회하므로 트랜잭션 밖에서 호출하면 하나의 스냅샷이 아니다.
+     */
+    private MemberTeamColumns searchColumnsStored(MemberSearchCondition condition) {
+        MemberTeamColumns.Builder builder = MemberTeamColumns.builder();
+        Optional<TeamNames> teams = teamDictionary.current();
+        Long lastId = null;
+        while (true) {
+            Predicate after = lastId == null ? null : member.id.gt(lastId);
+            JPAQuery<Tuple> query = teams.isPresent()
+                ? joinFreeQuery(condition, teams.get())
+                : queryFactory
+                    .select(member.id, member.username, member.age, member.team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(searchConditions(condition));
+            List<Tuple> rows = query
+                .where(after)
+                .orderBy(member.id.asc())
+                .limit(COLUMNS_CHUNK_SIZE)
+                .fetch();
+            for (Tuple row : rows) {
+                Long teamId = row.get(member.team.id);
+                builder.add(row.get(member.id), row.get(member.username), row.get(member.age),
+                    teamId, teams.isPresent() ? teams.get().nameOf(teamId) : row.get(team.name));
+            }
+            if (rows.size() < COLUMNS_CHUNK_SIZE) {
+                return builder.build();
+            }
+            lastId = rows.get(rows.size() - 1).get(member.id);
+        }
+    }
+    
+    private <T> T recorded(String method, MemberSearchCondition condition, Pageable pageable,
+        Function<RepositoryQueryEvent, T> search) {
+        RepositoryQueryEvent event = RepositoryQueryEvent.start(MemberRepositoryImpl.class, method, pageable);
+        long start = System.nanoTime();
+        T result = null;
+        try {
+            result = search.apply(event);
+            return result;
+        } finally {
+            searchWorkload.record(condition, pageable, System.nanoTime() - start);
+            event.finish(result, () -> SearchWorkload.Shape.of(condition,
+                pageable == null ? Sort.unsorted() : pageable.getSort()).toString());
+        }
+    }
+    
+    /**
+     * team 조인 없이 member 테이블만 조회한다. (TeamDictionary)
+     * member.team.id 는 member 테이블의 FK 컬럼으로 바뀌므로 조인이 생기지 않는다.
+     */
+    private JPAQuery<Tuple> joinFreeQuery(MemberSearchCondition condition, TeamNames teams) {
+        return queryFactory
+            .select(member.id, member.username, member.age, member.team.id)
+            .from(member)
+            .where(joinFreeConditions(condition, teams));
+    }
+    
+    private long joinFreeCount(MemberSearchCondition condition, TeamNames teams) {
+        return queryFactory
+            .select(member.count())
+            .from(member)
+            .where(joinFreeConditions(condition, teams))
+            .fetchOne();
+    }
+    
+    private Predicate[] joinFreeConditions(MemberSearchCondition condition, TeamNames teams) {
+        return new Predicate[]{
+            usernameEq(condition.getUsername()),
+            usernamePrefix(condition.getUsernamePrefix()),
+            teamIdIn(condition.getTeamName(), teams),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe())
+        };
+    }
+    
+    private List<MemberTeamDto> toDtos(List<Tuple> rows, TeamNames teams) {
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Long teamId = row.get(member.team.id);
+            result.add(new MemberTeamDto(row.get(member.id), row.get(member.username), row.get(member.age),
+                teamId, teams.nameOf(teamId)));
+        }
+        return result;
+    }
+    
+    /**
+     * 메모리 계층(MemberHotTier)에 그대로 넘길 수 있도록 where 조건을 배열로 모은다.
+     */
+    private Predicate[] searchConditions(MemberSearchCondition condition) {
+        return new Predicate[]{
+            usernameEq(condition.getUsername()),
+            usernamePrefix(condition.getUsernamePrefix()),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe())
+        };
     }
     
     private Predicate ageLoe(Integer ageLoe) {
@@ -211,7 +487,25 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
         return hasText(teamName) ? team.name.eq(teamName) : null;
     }
     
+    private Predicate teamIdIn(String teamName, TeamNames teams) {
+        if (!hasText(teamName)) {
+            return null;
+        }
+        List<Long> teamIds = teams.idsOf(teamName);
+        return teamIds.isEmpty() ? Expressions.FALSE.isTrue() : member.team.id.in(teamIds);
+    }
+    
     private Predicate usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
+    
+    private Predicate usernamePrefix(String usernamePrefix) {
+        if (!hasText(usernamePrefix)) {
+            return null;
+        }
+        return usernamePrefixIndex.lookup(usernamePrefix)
+            .map(ids -> ids.isEmpty() ? Expressions.FALSE.isTrue()
+                : member.id.in(ids).and(member.username.startsWith(usernamePrefix)))
+            .orElseGet(() -> member.username.startsWith(usernamePrefix));
+    }
 }
\ No newline at end of file
@@ -5,25 +5,48 @@ import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.jpa.impl.JPAQuery;
+import java.time.Duration;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.index.UsernamePrefixIndex;
+import study.querydsl.repository.support.JpaQueryHints;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
 
 @Repository
 public class MemberTestRepository extends Querydsl4RepositorySupport {
     
-    public MemberTestRepository() {
+    private final UsernamePrefixIndex usernamePrefixIndex;
+    
+    public MemberTestRepository(UsernamePrefixIndex usernamePrefixIndex) {
         super(Member.class);
+        this.usernamePrefixIndex = usernamePrefixIndex;
+    }
+    
+    /**
+     * 회원 전체를 스캔하는 쿼리가 많으므로 fetch size를 키우고, 오래 걸리는 쿼리는 끊는다.
+     */
+    @Override
+    protected JpaQueryHints defaultHints() {
+        return JpaQueryHints.defaults()
+            .fetchSize(100)
+            .timeout(Duration.ofSeconds(10))
+            .comment("MemberTestRepository");
     }
     
+    /**
+     * 조회 전용 (readOnlyHints). 반환된 엔티티의 변경은 DB에 반영되지 않는다.
+     */
+    @Transactional(readOnly = true)
     public List<Member> basicSelect() {
-        return select(member)
+        return select(member, readOnlyHints())
             .from(member)
             .fetch();
     }
@@ -33,10 +56,16 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
             .fetch();
     }
     
+    public List<Member> basicSelectWithTeam(int batchSize) {
+        return fetchWithBatch(selectFrom(member), batchSize, member.team);
+    }
+    
+    @Transactional(readOnly = true)
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
-        JPAQuery<Member> query = selectFrom(member)
+        JPAQuery<Member> query = selectFrom(member, readOnlyHints())
             .leftJoin(member.team, team)
             .where(usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
@@ -48,11 +77,13 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
         return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
     }
     
+    @Transactional(readOnly = true)
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
-        return applyPagination(pageable, query -> query
+        return applyPagination(pageable, readOnlyHints(), query -> query
                 .selectFrom(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
+                        usernamePrefix(condition.getUsernamePrefix()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
@@ -65,6 +96,7 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
             .selectFrom(member)
             .leftJoin(member.team, team)
             .where(usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
@@ -73,6 +105,7 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
             .select(member.id)
             .from(member)
             .where(usernameEq(condition.getUsername()),
+                usernamePrefix(condition.getUsernamePrefix()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
@@ -95,4 +128,14 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     private Predicate usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
+    
+    private Predicate usernamePrefix(String usernamePrefix) {
+        if (!hasText(usernamePrefix)) {
+            return null;
+        }
+        return usernamePrefixIndex.lookup(usernamePrefix)
+            .map(ids -> ids.isEmpty() ? Expressions.FALSE.isTrue()
+                : member.id.in(ids).and(member.username.startsWith(usernamePrefix)))
+            .orElseGet(() -> member.username.startsWith(usernamePrefix));
+    }
 }
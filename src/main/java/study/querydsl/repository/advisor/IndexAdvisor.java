@@ -0,0 +1,260 @@
+package study.querydsl.repository.advisor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.advisor.SearchWorkload.Shape;
+import study.querydsl.repository.advisor.SearchWorkload.ShapeStats;
+
+/**
+ * 검색 모양별 통계(SearchWorkload)와 실행 계획으로 복합 인덱스를 추천한다.
+ *
+ * 1. 모양마다 후보 인덱스를 만든다. 등호 조건 컬럼(username, team_id) 다음에 범위 조건 컬럼 하나(username like, age),
+ *    범위 조건이 없으면 첫 정렬 컬럼을 붙인다. teamName 조건이면 team(name)도 후보다.
+ * 2. 이미 있는 인덱스의 앞쪽 컬럼이 후보와 같으면 뺀다.
+ * 3. 모양의 표본 조건으로 EXPLAIN 을 실행해서 그 테이블을 전체 스캔할 때만 이득이 있다고 본다.
+ * 4. 기대 절감 시간 = 그 모양의 누적 지연 시간 x SCAN_SAVING_RATIO. 같은 후보를 쓰는 모양끼리 더해서 큰 순서로 정렬한다.
+ * 절감 비율은 어림값이라 순위를 매기는 용도로만 쓴다. EXPLAIN 결과와 information_schema.indexes 는 H2 기준이다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexAdvisor {
+    
+    static final double SCAN_SAVING_RATIO = 0.9;
+    
+    private static final Map<String, String> SORT_COLUMNS = new HashMap<>();
+    
+    static {
+        SORT_COLUMNS.put("age", "age");
+        SORT_COLUMNS.put("username", "username");
+    }
+    
+    private final SearchWorkload workload;
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * @param includeDdl true면 추천마다 create index 문을 같이 만든다. (실행하지는 않는다)
+     */
+    public Advice advise(boolean includeDdl) {
+        Map<String, List<List<String>>> existing = existingIndexes();
+        Map<Candidate, Recommendation> recommendations = new LinkedHashMap<>();
+        List<ShapeReport> shapes = new ArrayList<>();
+        
+        for (ShapeStats stats : workload.snapshot()) {
+            String plan = explain(stats.getSample(), stats.getShape());
+            ShapeReport report = new ShapeReport(stats, plan);
+            for (Candidate candidate : candidates(stats.getShape())) {
+                if (isCovered(candidate, existing)) {
+                    continue;
+                }
+                report.candidates.add(candidate.toString());
+                if (plan != null && !plan.contains("PUBLIC." + candidate.table.toUpperCase(Locale.ROOT) + ".tableScan")) {
+                    continue;
+                }
+                recommendations
+                    .computeIfAbsent(candidate, c -> new Recommendation(c, includeDdl ? c.ddl() : null))
+                    .add(stats);
+            }
+            shapes.add(report);
+        }
+        
+        List<Recommendation> ranked = new ArrayList<>(recommendations.values());
+        ranked.sort((a, b) -> Double.compare(b.expectedSavingMillis, a.expectedSavingMillis));
+        return new Advice(shapes, ranked);
+    }
+    
+    static List<Candidate> candidates(Shape shape) {
+        List<Candidate> candidates = new ArrayList<>();
+        Set<String> columns = new LinkedHashSet<>();
+        if (shape.has("username")) {
+            columns.add("username");
+        }
+        if (shape.has("teamName")) {
+            columns.add("team_id");
+        }
+        String range = null;
+        if (shape.has("usernamePrefix") && !shape.has("username")) {
+            range = "username";
+        } else if (shape.has("ageGoe") || shape.has("ageLoe")) {
+            range = "age";
+        } else if (!shape.getSort().isEmpty()) {
+            range = SORT_COLUMNS.get(shape.getSort().get(0).split(" ")[0]);
+        }
+        if (range != null) {
+            columns.add(range);
+        }
+        if (!columns.isEmpty()) {
+            candidates.add(new Candidate("member", new ArrayList<>(columns)));
+        }
+        if (shape.has("teamName")) {
+            candidates.add(new Candidate("team", Arrays.asList("name")));
+        }
+        return candidates;
+    }
+    
+    private static boolean isCovered(Candidate candidate, Map<String, List<List<String>>> existing) {
+        for (List<String> index : existing.getOrDefault(candidate.table, new ArrayList<>())) {
+            if (index.size() >= candidate.columns.size()
+                && index.subList(0, candidate.columns.size()).equals(candidate.columns)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private Map<String, List<List<String>>> existingIndexes() {
+        Map<String, Map<String, List<String>>> byName = new LinkedHashMap<>();
+        jdbcTemplate.query("select table_name, index_name, column_name from information_schema.indexes"
+                + " where table_schema = 'PUBLIC' and table_name in ('MEMBER', 'TEAM')"
+                + " order by table_name, index_name, ordinal_position",
+            rs -> {
+                byName.computeIfAbsent(rs.getString(1).toLowerCase(Locale.ROOT), t -> new LinkedHashMap<>())
+                    .computeIfAbsent(rs.getString(2), i -> new ArrayList<>())
+                    .add(rs.getString(3).toLowerCase(Locale.ROOT));
+            });
+        Map<String, List<List<String>>> result = new HashMap<>();
+        byName.forEach((table, indexes) -> result.put(table, new ArrayList<>(indexes.values())));
+        return result;
+    }
+    
+    /**
+     * MemberRepositoryImpl 검색과 같은 모양의 SQL로 실행 계획을 본다. 실패하면 null (이득 판단 없이 후보만 남긴다)
+     * teamName 은 팀 사전 경로처럼 team_id in (...) 으로 바꿔서 본다.
+     */
+    private String explain(MemberSearchCondition sample, Shape shape) {
+        StringBuilder sql = new StringBuilder("explain select m.member_id, m.username, m.age, t.id, t.name"
+            + " from member m left join team t on t.id = m.team_id where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (StringUtils.hasText(sample.getUsername())) {
+            sql.append(" and m.username = ?");
+            args.add(sample.getUsername());
+        }
+        if (StringUtils.hasText(sample.getUsernamePrefix())) {
+            sql.append(" and m.username like ?");
+            args.add(sample.getUsernamePrefix() + "%");
+        }
+        if (StringUtils.hasText(sample.getTeamName())) {
+            sql.append(" and m.team_id in (select id from team where name = ?)");
+            args.add(sample.getTeamName());
+        }
+        if (sample.getAgeGoe() != null) {
+            sql.append(" and m.age >= ?");
+            args.add(sample.getAgeGoe());
+        }
+        if (sample.getAgeLoe() != null) {
+            sql.append(" and m.age <= ?");
+            args.add(sample.getAgeLoe());
+        }
+        List<String> orderBy = new ArrayList<>();
+        for (String order : shape.getSort()) {
+            String[] parts = order.split(" ");
+            String column = SORT_COLUMNS.get(parts[0]);
+            if (column != null) {
+                orderBy.add("m." + column + " " + parts[1]);
+            }
+        }
+        if (!orderBy.isEmpty()) {
+            sql.append(" order by ").append(String.join(", ", orderBy));
+        }
+        try {
+            return jdbcTemplate.queryForObject(sql.toString(), String.class, args.toArray());
+        } catch (DataAccessException e) {
+            log.warn("explain failed for shape {}", shape, e);
+            return null;
+        }
+    }
+    
+    @Getter
+    public static class Advice {
+        
+        private final List<ShapeReport> shapes;
+        private final List<Recommendation> recommendations;
+        
+        Advice(List<ShapeReport> shapes, List<Recommendation> recommendations) {
+            this.shapes = shapes;
+            this.recommendations = recommendations;
+        }
+    }
+    
+    @Getter
+    public static class ShapeReport {
+        
+        private final String shape;
+        private final long count;
+        private final double avgMillis;
+        private final double maxMillis;
+        private final double totalMillis;
+        private final String plan;
+        private final List<String> candidates = new ArrayList<>();
+        
+        ShapeReport(ShapeStats stats, String plan) {
+            this.shape = stats.getShape().toString();
+            this.count = stats.getCount();
+            this.avgMillis = stats.getAvgMillis();
+            this.maxMillis = stats.getMaxMillis();
+            this.totalMillis = stats.getTotalMillis();
+            this.plan = plan;
+        }
+    }
+    
+    @Getter
+    public static class Recommendation {
+        
+        private final String table;
+        private final List<String> columns;
+        private final String ddl;
+        private final List<String> shapes = new ArrayList<>();
+        private long count;
+        private double expectedSavingMillis;
+        
+        Recommendation(Candidate candidate, String ddl) {
+            this.table = candidate.table;
+            this.columns = candidate.columns;
+            this.ddl = ddl;
+        }
+        
+        void add(ShapeStats stats) {
+            shapes.add(stats.getShape().toString());
+            count += stats.getCount();
+            expectedSavingMillis += stats.getTotalMillis() * SCAN_SAVING_RATIO;
+        }
+    }
+    
+    @EqualsAndHashCode
+    static class Candidate {
+        
+        private final String table;
+        private final List<String> columns;
+        
+        Candidate(String table, List<String> columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+        
+        String ddl() {
+            return "create index if not exists idx_" + table + "_" + String.join("_", columns)
+                + " on " + table + " (" + String.join(", ", columns) + ")";
+        }
+        
+        @Override
+        public String toString() {
+            return table + "(" + String.join(", ", columns) + ")";
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.repository.advisor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * 인덱스 추천
+ * GET /actuator/indexadvisor?ddl=true : 검색 모양별 통계, 실행 계획, 추천 인덱스 (ddl=true면 create index 문 포함)
+ * DELETE /actuator/indexadvisor : 모은 통계 초기화
+ */
+@Component
+@Endpoint(id = "indexadvisor")
+@RequiredArgsConstructor
+public class IndexAdvisorEndpoint {
+    
+    private final IndexAdvisor indexAdvisor;
+    private final SearchWorkload searchWorkload;
+    
+    @ReadOperation
+    public IndexAdvisor.Advice advise(@Nullable Boolean ddl) {
+        return indexAdvisor.advise(Boolean.TRUE.equals(ddl));
+    }
+    
+    @DeleteOperation
+    public void reset() {
+        searchWorkload.reset();
+    }
+}
@@ -0,0 +1,165 @@
+package study.querydsl.repository.advisor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 회원 검색 모양(어떤 조건을 썼는지 + 정렬)별 호출 수와 지연 시간
+ * 조건 값은 모양에 넣지 않는다. 모양마다 마지막 조건 하나만 실행 계획 확인용 표본으로 남긴다. (IndexAdvisor)
+ * 기록은 LongAdder 로만 해서 검색 경로에서 잠금을 잡지 않는다.
+ *
+ * 정렬은 클라이언트가 보낸 값이라 그대로 키로 쓰면 모양이 끝없이 늘어난다.
+ * SORT_PROPERTIES 에 있는 속성만, 속성마다 처음 한 번만 모양에 넣으므로 모양 수는 조건 조합 x 정렬 조합으로 제한된다.
+ */
+@Component
+public class SearchWorkload {
+    
+    /**
+     * 모양에 기록하는 정렬 속성 (IndexAdvisor 가 인덱스 컬럼으로 바꿀 수 있는 것)
+     */
+    static final Set<String> SORT_PROPERTIES = Set.of("age", "username");
+    
+    private final Map<Shape, Stats> shapes = new ConcurrentHashMap<>();
+    
+    public void record(MemberSearchCondition condition, Pageable pageable, long elapsedNanos) {
+        Shape shape = Shape.of(condition, pageable == null ? Sort.unsorted() : pageable.getSort());
+        Stats stats = shapes.computeIfAbsent(shape, s -> new Stats());
+        stats.count.increment();
+        stats.totalNanos.add(elapsedNanos);
+        stats.maxNanos.accumulate(elapsedNanos);
+        stats.sample = copyOf(condition);
+    }
+    
+    /**
+     * 누적 지연 시간이 큰 순서
+     */
+    public List<ShapeStats> snapshot() {
+        List<ShapeStats> result = new ArrayList<>();
+        shapes.forEach((shape, stats) -> result.add(new ShapeStats(shape, stats.count.sum(),
+            stats.totalNanos.sum(), stats.maxNanos.get(), stats.sample)));
+        result.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return result;
+    }
+    
+    public void reset() {
+        shapes.clear();
+    }
+    
+    private static MemberSearchCondition copyOf(MemberSearchCondition condition) {
+        MemberSearchCondition copy = new MemberSearchCondition();
+        copy.setUsername(condition.getUsername());
+        copy.setUsernamePrefix(condition.getUsernamePrefix());
+        copy.setTeamName(condition.getTeamName());
+        copy.setAgeGoe(condition.getAgeGoe());
+        copy.setAgeLoe(condition.getAgeLoe());
+        return copy;
+    }
+    
+    /**
+     * 검색 모양. 조건 이름은 MemberSearchCondition 필드 이름, 정렬은 "속성 방향" (예: age DESC)
+     */
+    @Getter
+    @EqualsAndHashCode
+    public static class Shape {
+        
+        private final SortedSet<String> conditions;
+        private final List<String> sort;
+        
+        private Shape(SortedSet<String> conditions, List<String> sort) {
+            this.conditions = Collections.unmodifiableSortedSet(conditions);
+            this.sort = Collections.unmodifiableList(sort);
+        }
+        
+        public static Shape of(MemberSearchCondition condition, Sort sort) {
+            SortedSet<String> conditions = new TreeSet<>();
+            if (StringUtils.hasText(condition.getUsername())) {
+                conditions.add("username");
+            }
+            if (StringUtils.hasText(condition.getUsernamePrefix())) {
+                conditions.add("usernamePrefix");
+            }
+            if (StringUtils.hasText(condition.getTeamName())) {
+                conditions.add("teamName");
+            }
+            if (condition.getAgeGoe() != null) {
+                conditions.add("ageGoe");
+            }
+            if (condition.getAgeLoe() != null) {
+                conditions.add("ageLoe");
+            }
+            List<String> orders = new ArrayList<>();
+            Set<String> properties = new HashSet<>();
+            for (Sort.Order order : sort) {
+                if (SORT_PROPERTIES.contains(order.getProperty()) && properties.add(order.getProperty())) {
+                    orders.add(order.getProperty() + " " + order.getDirection());
+                }
+            }
+            return new Shape(conditions, orders);
+        }
+        
+        public boolean has(String condition) {
+            return conditions.contains(condition);
+        }
+        
+        @Override
+        public String toString() {
+            return (conditions.isEmpty() ? "(none)" : String.join(", ", conditions))
+                + (sort.isEmpty() ? "" : " order by " + String.join(", ", sort));
+        }
+    }
+    
+    @Getter
+    public static class ShapeStats {
+        
+        private final Shape shape;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final MemberSearchCondition sample;
+        
+        ShapeStats(Shape shape, long count, long totalNanos, long maxNanos, MemberSearchCondition sample) {
+            this.shape = shape;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.sample = sample;
+        }
+        
+        public double getAvgMillis() {
+            return count == 0 ? 0 : totalNanos / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+        
+        public double getTotalMillis() {
+            return totalNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+        
+        public double getMaxMillis() {
+            return maxNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+    
+    private static class Stats {
+        
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private volatile MemberSearchCondition sample;
+    }
+}
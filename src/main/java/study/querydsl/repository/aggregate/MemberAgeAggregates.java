@@ -0,0 +1,249 @@
+package study.querydsl.repository.aggregate;
+
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.listener.BulkChangeEvent;
+import study.querydsl.entity.listener.EntityChangeEvent;
+import study.querydsl.entity.listener.MemberAgeDeltaEvent;
+import study.querydsl.repository.support.VersionedSnapshot;
+
+/**
+ * member.age 집계(count, sum, min, max, avg) 캐시. 전체와 팀별로 유지한다.
+ * where age = (select max(age) from member) 같은 스칼라 서브쿼리는 실행할 때마다 테이블 전체를 다시 집계하므로
+ * 캐시된 값을 상수 파라미터로 바꿔 넣는다.
+ *
+ * <pre>
+ * queryFactory.selectFrom(member)
+ *     .where(member.age.goe(memberAgeAggregates.avgAge()))
+ * </pre>
+ *
+ * 1. 전체 count, sum(avg)은 따로 둔다. write-behind flush(MemberAgeDeltaEvent)는 age 합계만 바꾸므로 다시 읽지 않고 커밋 후 더한다.
+ *    엔티티 변경과 그 밖의 벌크 변경은 이전 값을 알 수 없으므로 무효화하고 count(*), sum(age) 로 다시 읽는다.
+ * 2. min/max와 팀별 값은 Member가 바뀔 때마다 무효화하고, 필요할 때 group by 쿼리 한 번으로 다시 계산한다.
+ *    (min/max는 삭제를 증분으로 반영할 수 없다)
+ * 3. 다시 계산은 한 스레드만 하고, 그동안 다른 요청은 이전 값을 쓴다. (VersionedSnapshot.latest)
+ *    과부하 때 캐시된 회원 수를 쓰는 경로(MemberController)가 동시에 전체 집계를 여러 번 실행하지 않게 한다.
+ * 4. 현재 트랜잭션에서 Member를 변경했으면 캐시는 자기 변경을 모르므로 원래 서브쿼리를 그대로 반환한다.
+ */
+@Component
+public class MemberAgeAggregates {
+    
+    private static final QMember memberSub = new QMember("memberSub");
+    
+    private final JPAQueryFactory queryFactory;
+    private final VersionedSnapshot<Totals> totals;
+    private final VersionedSnapshot<Snapshot> snapshot;
+    
+    public MemberAgeAggregates(JPAQueryFactory queryFactory, EntityManager em,
+        PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        this.totals = new VersionedSnapshot<>(em, transactionManager, this::loadTotals, Member.class);
+        this.snapshot = new VersionedSnapshot<>(em, transactionManager, this::load, Member.class);
+    }
+    
+    /**
+     * 전체 회원 수. 캐시를 쓸 수 없으면 빈 Optional
+     */
+    public Optional<Long> memberCount() {
+        return totals.latest().map(Totals::getCount);
+    }
+    
+    /**
+     * 전체 집계. 캐시를 쓸 수 없으면 빈 Optional
+     */
+    public Optional<AgeStats> global() {
+        return snapshot.latest().map(s -> s.global);
+    }
+    
+    /**
+     * 팀별 집계. 회원이 없는 팀은 count 0
+     */
+    public Optional<AgeStats> team(Long teamId) {
+        return snapshot.latest().map(s -> s.teams.getOrDefault(teamId, AgeStats.EMPTY));
+    }
+    
+    public Expression<Integer> maxAge() {
+        return constantOr(global(), AgeStats::getMax,
+            JPAExpressions.select(memberSub.age.max()).from(memberSub));
+    }
+    
+    public Expression<Integer> minAge() {
+        return constantOr(global(), AgeStats::getMin,
+            JPAExpressions.select(memberSub.age.min()).from(memberSub));
+    }
+    
+    public Expression<Double> avgAge() {
+        return constantOr(totals.latest(), Totals::getAvg,
+            JPAExpressions.select(memberSub.age.avg()).from(memberSub));
+    }
+    
+    public Expression<Long> count() {
+        return constantOr(totals.latest(), Totals::getCount,
+            JPAExpressions.select(memberSub.count()).from(memberSub));
+    }
+    
+    public Expression<Integer> maxAge(Long teamId) {
+        return constantOr(team(teamId), AgeStats::getMax,
+            JPAExpressions.select(memberSub.age.max()).from(memberSub).where(memberSub.team.id.eq(teamId)));
+    }
+    
+    public Expression<Integer> minAge(Long teamId) {
+        return constantOr(team(teamId), AgeStats::getMin,
+            JPAExpressions.select(memberSub.age.min()).from(memberSub).where(memberSub.team.id.eq(teamId)));
+    }
+    
+    public Expression<Double> avgAge(Long teamId) {
+        return constantOr(team(teamId), AgeStats::getAvg,
+            JPAExpressions.select(memberSub.age.avg()).from(memberSub).where(memberSub.team.id.eq(teamId)));
+    }
+    
+    public Expression<Long> count(Long teamId) {
+        return constantOr(team(teamId), AgeStats::getCount,
+            JPAExpressions.select(memberSub.count()).from(memberSub).where(memberSub.team.id.eq(teamId)));
+    }
+    
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Member.class)) {
+            totals.changed();
+            snapshot.changed();
+        }
+    }
+    
+    @EventListener
+    public void onBulkChange(BulkChangeEvent event) {
+        if (!event.isFor(Member.class)) {
+            return;
+        }
+        if (event instanceof MemberAgeDeltaEvent) {
+            long ageDelta = ((MemberAgeDeltaEvent) event).getAgeDelta();
+            totals.updateOnCommit(current -> current.plusAge(ageDelta));
+        } else {
+            totals.changed();
+        }
+        snapshot.changed();
+    }
+    
+    /**
+     * 집계 대상 행이 없으면 max/min/avg는 서브쿼리와 같이 null 이다. null은 상수로 바꿀 수 없으므로 서브쿼리를 쓴다.
+     */
+    private static <S, T> Expression<T> constantOr(Optional<S> stats, Function<S, T> value,
+        Expression<T> subQuery) {
+        return stats.map(value)
+            .<Expression<T>>map(Expressions::constant)
+            .orElse(subQuery);
+    }
+    
+    private Totals loadTotals() {
+        Tuple row = queryFactory
+            .select(member.count(), member.age.sum().longValue())
+            .from(member)
+            .fetchOne();
+        Long sum = row.get(member.age.sum().longValue());
+        return new Totals(row.get(member.count()), sum == null ? 0 : sum);
+    }
+    
+    private Snapshot load() {
+        List<Tuple> rows = queryFactory
+            .select(member.team.id, member.count(), member.age.sum().longValue(), member.age.min(), member.age.max())
+            .from(member)
+            .groupBy(member.team.id)
+            .fetch();
+        
+        Map<Long, AgeStats> teams = new HashMap<>();
+        AgeStats global = AgeStats.EMPTY;
+        for (Tuple row : rows) {
+            AgeStats stats = new AgeStats(row.get(member.count()), row.get(member.age.sum().longValue()),
+                row.get(member.age.min()), row.get(member.age.max()));
+            Long teamId = row.get(member.team.id);
+            if (teamId != null) {
+                teams.put(teamId, stats);
+            }
+            global = global.merge(stats);
+        }
+        return new Snapshot(global, teams);
+    }
+    
+    @Getter
+    @ToString
+    public static class AgeStats {
+        
+        static final AgeStats EMPTY = new AgeStats(0, 0, null, null);
+        
+        private final long count;
+        private final long sum;
+        private final Integer min;
+        private final Integer max;
+        
+        AgeStats(long count, long sum, Integer min, Integer max) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+        
+        public Double getAvg() {
+            return count == 0 ? null : (double) sum / count;
+        }
+        
+        AgeStats merge(AgeStats other) {
+            if (other.count == 0) {
+                return this;
+            }
+            if (count == 0) {
+                return other;
+            }
+            return new AgeStats(count + other.count, sum + other.sum,
+                Math.min(min, other.min), Math.max(max, other.max));
+        }
+    }
+    
+    @Getter
+    private static class Totals {
+        
+        private final long count;
+        private final long sum;
+        
+        Totals(long count, long sum) {
+            this.count = count;
+            this.sum = sum;
+        }
+        
+        public Double getAvg() {
+            return count == 0 ? null : (double) sum / count;
+        }
+        
+        Totals plusAge(long ageDelta) {
+            return new Totals(count, sum + ageDelta);
+        }
+    }
+    
+    private static class Snapshot {
+        
+        private final AgeStats global;
+        private final Map<Long, AgeStats> teams;
+        
+        Snapshot(AgeStats global, Map<Long, AgeStats> teams) {
+            this.global = global;
+            this.teams = teams;
+        }
+    }
+}
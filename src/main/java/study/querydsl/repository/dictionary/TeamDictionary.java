@@ -0,0 +1,107 @@
+package study.querydsl.repository.dictionary;
+
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.persistence.EntityManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.listener.BulkChangeEvent;
+import study.querydsl.entity.listener.EntityChangeEvent;
+import study.querydsl.repository.support.VersionedSnapshot;
+
+/**
+ * Team id ↔ name 사전
+ * 회원 검색은 team.name 조건과 teamName 컬럼 때문에 team을 조인하는데, 팀은 몇 개뿐이라 메모리에 두고 조인을 없앤다.
+ *
+ * 1. teamName 조건 → member.team.id in (사전에서 찾은 id) (member 테이블의 FK 컬럼 조건이라 조인이 필요 없다)
+ * 2. teamName 컬럼 → 조회 후 member.team.id 로 사전에서 채운다.
+ *
+ * Team이 바뀌면(flush, 커밋/롤백 시점) 버전을 올리고 다음 조회 때 다시 읽는다. (VersionedSnapshot)
+ * 현재 트랜잭션에서 Team을 변경했으면 사전은 그 변경을 모르므로 빈 Optional을 반환하고, 호출하는 쪽은 조인으로 조회한다.
+ */
+@Component
+public class TeamDictionary {
+    
+    private final JPAQueryFactory queryFactory;
+    private final VersionedSnapshot<TeamNames> snapshot;
+    
+    public TeamDictionary(JPAQueryFactory queryFactory, EntityManager em,
+        PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        this.snapshot = new VersionedSnapshot<>(em, transactionManager, this::load, Team.class);
+    }
+    
+    public Optional<TeamNames> current() {
+        return snapshot.current();
+    }
+    
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Team.class)) {
+            snapshot.changed();
+        }
+    }
+    
+    @EventListener
+    public void onBulkChange(BulkChangeEvent event) {
+        if (event.isFor(Team.class)) {
+            snapshot.changed();
+        }
+    }
+    
+    private TeamNames load() {
+        List<Tuple> rows = queryFactory
+            .select(team.id, team.name)
+            .from(team)
+            .fetch();
+        
+        Map<Long, String> namesById = new HashMap<>();
+        Map<String, List<Long>> idsByName = new HashMap<>();
+        for (Tuple row : rows) {
+            namesById.put(row.get(team.id), row.get(team.name));
+            if (row.get(team.name) != null) {
+                idsByName.computeIfAbsent(row.get(team.name), name -> new ArrayList<>()).add(row.get(team.id));
+            }
+        }
+        return new TeamNames(namesById, idsByName);
+    }
+    
+    public static class TeamNames {
+        
+        private final Map<Long, String> namesById;
+        private final Map<String, List<Long>> idsByName;
+        
+        TeamNames(Map<Long, String> namesById, Map<String, List<Long>> idsByName) {
+            this.namesById = namesById;
+            this.idsByName = idsByName;
+        }
+        
+        /**
+         * 팀 id가 null이면 null (팀이 없는 회원)
+         */
+        public String nameOf(Long teamId) {
+            return teamId == null ? null : namesById.get(teamId);
+        }
+        
+        /**
+         * 이름이 같은 팀이 여러 개일 수 있으므로 목록을 반환한다. 없으면 빈 목록
+         */
+        public List<Long> idsOf(String teamName) {
+            return idsByName.getOrDefault(teamName, Collections.emptyList());
+        }
+        
+        public int size() {
+            return namesById.size();
+        }
+    }
+}
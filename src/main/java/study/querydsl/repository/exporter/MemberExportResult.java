@@ -0,0 +1,28 @@
+package study.querydsl.repository.exporter;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 회원 내보내기 결과
+ */
+@Getter
+@ToString
+public class MemberExportResult {
+    
+    private final long rows;
+    private final int partitions;
+    private final int workers;
+    private final long elapsedMillis;
+    
+    MemberExportResult(long rows, int partitions, int workers, long elapsedMillis) {
+        this.rows = rows;
+        this.partitions = partitions;
+        this.workers = workers;
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? 0 : rows * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,176 @@
+package study.querydsl.repository.exporter;
+
+import static study.querydsl.entity.QMember.member;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * 회원 + 팀 전체 내보내기 (NDJSON)
+ * 커서 하나로 읽으면 코어 하나, 커넥션 하나만 쓰게 되므로 member id 공간을 구간으로 나눠 동시에 읽는다.
+ *
+ * 1. min ~ max member id를 partition-size 너비의 구간으로 나눈다.
+ * 2. 구간마다 별도 읽기 전용 트랜잭션(= 별도 커넥션)에서 MemberRepository.searchRange()로 읽어 파트 파일에 쓴다.
+ * 3. 동시에 실행하는 워커 수는 커넥션 풀 크기 - 1 을 넘지 않는다. (요청 처리용 커넥션 하나는 남겨둔다)
+ * 4. 모든 구간이 끝나면 파트 파일을 구간 순서대로 이어 붙이므로 결과 파일은 member id 순서다.
+ * 구간마다 다른 시점에 읽으므로 내보내는 도중의 변경에 대해 하나의 스냅샷을 보장하지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberExporter {
+    
+    private final int partitionSize;
+    private final int maxPoolSize;
+    private final MemberRepository memberRepository;
+    private final JPAQueryFactory queryFactory;
+    private final ObjectWriter writer;
+    private final TransactionTemplate readTransaction;
+    
+    public MemberExporter(@Value("${member.export.partition-size:10000}") int partitionSize,
+        @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxPoolSize,
+        MemberRepository memberRepository, JPAQueryFactory queryFactory, ObjectMapper objectMapper,
+        PlatformTransactionManager transactionManager) {
+        this.partitionSize = partitionSize;
+        this.maxPoolSize = maxPoolSize;
+        this.memberRepository = memberRepository;
+        this.queryFactory = queryFactory;
+        this.writer = objectMapper.writerFor(MemberTeamDto.class);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+    
+    /**
+     * @param workers 동시에 읽을 구간 수. 커넥션 풀 크기 - 1 로 제한된다.
+     * @param output  결과 파일. 같은 디렉터리에 파트 파일을 만들었다가 합친 뒤 지운다.
+     */
+    public MemberExportResult export(MemberSearchCondition condition, int workers, Path output) throws IOException {
+        Assert.isTrue(workers > 0, "workers must be positive");
+        long start = System.currentTimeMillis();
+        int threads = Math.min(workers, Math.max(1, maxPoolSize - 1));
+        
+        Tuple bounds = readTransaction.execute(status -> queryFactory
+            .select(member.id.min(), member.id.max())
+            .from(member)
+            .fetchOne());
+        Long min = bounds.get(member.id.min());
+        Long max = bounds.get(member.id.max());
+        
+        List<Path> parts = new ArrayList<>();
+        long rows = 0;
+        if (min != null) {
+            for (long from = min; from <= max; from += partitionSize) {
+                parts.add(output.resolveSibling(output.getFileName() + String.format(".part-%05d", parts.size())));
+            }
+            rows = exportPartitions(condition, min, threads, parts);
+        }
+        merge(parts, output);
+        
+        MemberExportResult result = new MemberExportResult(rows, parts.size(), threads,
+            System.currentTimeMillis() - start);
+        log.info("member export finished: {}", result);
+        return result;
+    }
+    
+    private long exportPartitions(MemberSearchCondition condition, long min, int threads, List<Path> parts)
+        throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+            r -> new Thread(r, "member-export-" + threadNumber.incrementAndGet()));
+        boolean completed = false;
+        try {
+            List<Future<Integer>> futures = new ArrayList<>(parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                long from = min + (long) i * partitionSize;
+                Path part = parts.get(i);
+                futures.add(executor.submit(() -> exportPartition(condition, from, from + partitionSize, part)));
+            }
+            long rows = 0;
+            for (Future<Integer> future : futures) {
+                rows += future.get();
+            }
+            completed = true;
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("member export interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException("member export failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (!completed) {
+                awaitQuietly(executor);
+                deleteQuietly(parts);
+            }
+        }
+    }
+    
+    private int exportPartition(MemberSearchCondition condition, long fromId, long toId, Path part) {
+        List<MemberTeamDto> rows = readTransaction.execute(status ->
+            memberRepository.searchRange(condition, fromId, toId));
+        try (BufferedWriter out = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+            for (MemberTeamDto row : rows) {
+                out.write(writer.writeValueAsString(row));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows.size();
+    }
+    
+    private static void merge(List<Path> parts, Path output) throws IOException {
+        try (OutputStream out = Files.newOutputStream(output)) {
+            for (Path part : parts) {
+                Files.copy(part, out);
+                Files.delete(part);
+            }
+        }
+    }
+    
+    private static void awaitQuietly(ExecutorService executor) {
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static void deleteQuietly(List<Path> parts) {
+        for (Path part : parts) {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                log.warn("failed to delete export part {}", part, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package study.querydsl.repository.hot;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.mysema.codegen.ECJEvaluatorFactory;
+import com.querydsl.collections.CollQuery;
+import com.querydsl.collections.CollQueryTemplates;
+import com.querydsl.collections.DefaultEvaluatorFactory;
+import com.querydsl.collections.DefaultQueryEngine;
+import com.querydsl.collections.QueryEngine;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.support.ReplaceVisitor;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.listener.BulkChangeEvent;
+import study.querydsl.entity.listener.EntityChangeEvent;
+import study.querydsl.repository.support.VersionedSnapshot;
+
+/**
+ * Member + Team 조회용 메모리 계층 (querydsl-collections)
+ * 리포지토리가 만든 where 조건(Predicate)을 그대로 메모리 스냅샷에 적용해 검색한다.
+ *
+ * 다음 경우에는 빈 Optional을 반환하므로 호출하는 쪽은 JPA로 조회해야 한다.
+ * 1. member.hot-tier.enabled=false
+ * 2. 스냅샷이 없거나 마지막 변경 이후 다시 읽지 못함 (이 때 백그라운드에서 다시 읽는다)
+ * 3. 회원 수가 member.hot-tier.max-rows 보다 많음
+ * 4. 현재 트랜잭션에서 Member, Team을 변경함 (자기가 쓴 데이터는 JPA로 읽어야 보인다)
+ */
+@Slf4j
+@Component
+public class MemberHotTier {
+
+    private final boolean enabled;
+    private final int maxRows;
+    private final JPAQueryFactory queryFactory;
+    private final VersionedSnapshot<Snapshot> snapshot;
+    private final QueryEngine queryEngine = createQueryEngine();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "member-hot-tier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    public MemberHotTier(@Value("${member.hot-tier.enabled:false}") boolean enabled,
+        @Value("${member.hot-tier.max-rows:100000}") int maxRows,
+        JPAQueryFactory queryFactory, EntityManager em,
+        PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.maxRows = maxRows;
+        this.queryFactory = queryFactory;
+        this.snapshot = new VersionedSnapshot<>(em, transactionManager, this::load, Member.class, Team.class);
+    }
+
+    public Optional<List<MemberTeamDto>> search(Predicate... where) {
+        return members(where).map(this::toDtos);
+    }
+
+    /**
+     * JPA 쪽과 마찬가지로 정렬 조건은 적용하지 않고 member id 순서로 자른다.
+     */
+    public Optional<Page<MemberTeamDto>> searchPage(Pageable pageable, Predicate... where) {
+        return members(where).map(found -> {
+            List<Member> content = found.stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .collect(Collectors.toList());
+            return PageableExecutionUtils.getPage(toDtos(content), pageable, found::size);
+        });
+    }
+
+    public boolean isAvailable() {
+        return enabled && snapshot.ifFresh().filter(current -> current.members != null).isPresent();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        scheduleRefresh();
+    }
+
+    /**
+     * 스냅샷을 다시 읽는다. 읽는 도중 변경이 생기면 버전이 맞지 않아 다음 조회 때 다시 읽게 된다.
+     */
+    public void refresh() {
+        snapshot.reload();
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Member.class) || event.isFor(Team.class)) {
+            snapshot.changed();
+        }
+    }
+
+    @EventListener
+    public void onBulkChange(BulkChangeEvent event) {
+        if (event.isFor(Member.class) || event.isFor(Team.class)) {
+            snapshot.changed();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private Optional<List<Member>> members(Predicate... where) {
+        if (!enabled || snapshot.changedInCurrentTransaction()) {
+            return Optional.empty();
+        }
+        Snapshot current = snapshot.ifFresh().orElse(null);
+        if (current == null) {
+            scheduleRefresh();
+            return Optional.empty();
+        }
+        if (current.members == null) {
+            return Optional.empty();
+        }
+
+        List<Member> found = new CollQuery<Void>(queryEngine)
+            .from(member, current.members)
+            .where(joinedTeamToMemberTeam(where))
+            .select(member)
+            .fetch();
+        return Optional.of(found);
+    }
+
+    /**
+     * 리포지토리는 leftJoin(member.team, team) 후 team.name 으로 조건을 건다.
+     * 컬렉션 조회는 ManyToOne 조인을 지원하지 않으므로 team 별칭을 member.team 경로로 바꾼다.
+     * team이 없는 회원은 member.team.name 평가 중 NPE가 나고 결과에서 빠지는데, left join 후 team.name 조건과 결과가 같다.
+     */
+    private Predicate joinedTeamToMemberTeam(Predicate... where) {
+        Predicate predicate = ExpressionUtils.allOf(where);
+        if (predicate == null) {
+            return null;
+        }
+        return (Predicate) predicate.accept(new ReplaceVisitor<Void>() {
+            @Override
+            public Expression<?> visit(Path<?> expr, Void context) {
+                if (expr.equals(team)) {
+                    return member.team;
+                }
+                return super.visit(expr, context);
+            }
+        }, null);
+    }
+
+    private List<MemberTeamDto> toDtos(List<Member> members) {
+        List<MemberTeamDto> result = new ArrayList<>(members.size());
+        for (Member m : members) {
+            Team t = m.getTeam();
+            result.add(new MemberTeamDto(m.getId(), m.getUsername(), m.getAge(),
+                t == null ? null : t.getId(),
+                t == null ? null : t.getName()));
+        }
+        return result;
+    }
+
+    private Snapshot load() {
+        Long count = queryFactory
+            .select(member.count())
+            .from(member)
+            .fetchOne();
+        if (count != null && count > maxRows) {
+            log.info("member hot tier disabled: {} members > max-rows {}", count, maxRows);
+            return new Snapshot(null);
+        }
+
+        List<Tuple> rows = queryFactory
+            .select(member.id, member.username, member.age, team.id, team.name)
+            .from(member)
+            .leftJoin(member.team, team)
+            .orderBy(member.id.asc())
+            .fetch();
+
+        Map<Long, Team> teams = new HashMap<>();
+        List<Member> members = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Member m = new Member(row.get(member.username), row.get(member.age));
+            m.setId(row.get(member.id));
+            Long teamId = row.get(team.id);
+            if (teamId != null) {
+                m.setTeam(teams.computeIfAbsent(teamId, id -> {
+                    Team t = new Team(row.get(team.name));
+                    t.setId(id);
+                    return t;
+                }));
+            }
+            members.add(m);
+        }
+        return new Snapshot(members);
+    }
+
+    private void scheduleRefresh() {
+        if (!enabled || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refresher.execute(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("member hot tier refresh failed", e);
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    /**
+     * 기본 ECJ 설정은 실행 중인 JDK 버전을 인식하지 못해 소스 레벨이 1.3으로 잡히고 제네릭 코드 컴파일에 실패한다.
+     */
+    private static QueryEngine createQueryEngine() {
+        CompilerOptions options = ECJEvaluatorFactory.getDefaultCompilerOptions();
+        options.sourceLevel = ClassFileConstants.JDK1_6;
+        options.originalSourceLevel = ClassFileConstants.JDK1_6;
+        options.complianceLevel = ClassFileConstants.JDK1_6;
+        options.originalComplianceLevel = ClassFileConstants.JDK1_6;
+        options.targetJDK = ClassFileConstants.JDK1_6;
+        ClassLoader classLoader = MemberHotTier.class.getClassLoader();
+        return new DefaultQueryEngine(new DefaultEvaluatorFactory(CollQueryTemplates.DEFAULT,
+            new ECJEvaluatorFactory(classLoader, options)));
+    }
+
+    private static class Snapshot {
+
+        private final List<Member> members;
+
+        Snapshot(List<Member> members) {
+            this.members = members;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.repository.importer;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * 시퀀스 값을 한 번의 쿼리로 size 개 미리 받아온다.
+ * 엔티티가 쓰는 hibernate_sequence 를 그대로 쓰므로 JPA로 저장한 행과 id가 겹치지 않는다.
+ * system_range 는 H2 문법이다. 다른 DB로 옮기면 이 쿼리만 바꾸면 된다. (예: PostgreSQL generate_series)
+ */
+@Component
+@RequiredArgsConstructor
+public class IdBlockAllocator {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public long[] allocate(String sequence, int size) {
+        Assert.isTrue(size > 0, "size must be positive");
+        Assert.isTrue(sequence.matches("\\w+"), "invalid sequence name: " + sequence);
+        List<Long> ids = jdbcTemplate.queryForList(
+            "select next value for " + sequence + " from system_range(1, ?)", Long.class, size);
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.repository.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 회원 가져오기 결과
+ * 거부된 행은 개수는 모두 세고 상세 내용은 앞에서부터 MAX_REJECTED_DETAILS 개까지만 담는다.
+ */
+@Getter
+@ToString
+public class MemberImportResult {
+    
+    public static final int MAX_REJECTED_DETAILS = 100;
+    
+    private long accepted;
+    private long rejected;
+    private long teamsCreated;
+    private long batches;
+    private long elapsedMillis;
+    private final List<RejectedRow> rejectedRows = new ArrayList<>();
+    
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? 0 : accepted * 1000.0 / elapsedMillis;
+    }
+    
+    void reject(long line, String reason) {
+        rejected++;
+        if (rejectedRows.size() < MAX_REJECTED_DETAILS) {
+            rejectedRows.add(new RejectedRow(line, reason));
+        }
+    }
+    
+    void batchInserted(int members, int teams) {
+        accepted += members;
+        teamsCreated += teams;
+        batches++;
+    }
+    
+    void finish(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    @Getter
+    @ToString
+    public static class RejectedRow {
+        
+        private final long line;
+        private final String reason;
+        
+        RejectedRow(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+    }
+}
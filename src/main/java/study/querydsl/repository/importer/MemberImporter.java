@@ -0,0 +1,285 @@
+package study.querydsl.repository.importer;
+
+import static study.querydsl.entity.QTeam.team;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkQueryExecutor;
+
+/**
+ * 회원 대량 가져오기 (NDJSON, CSV)
+ * em.persist()는 행마다 영속성 컨텍스트에 스냅샷을 만들고 id를 하나씩 받아오므로 수백만 건에는 맞지 않는다.
+ *
+ * 1. 입력을 한 줄씩 읽어서 처리하므로 전체를 메모리에 올리지 않는다.
+ * 2. 팀 이름 -> id 는 시작할 때 한 번 읽어서 캐시하고, 없는 팀은 만들어서 캐시에 추가한다.
+ * 3. id는 배치 크기만큼 한 번에 받아오고 JdbcTemplate 배치 insert로 저장한다. (영속성 컨텍스트를 거치지 않는다)
+ * 4. 배치마다 별도 트랜잭션으로 커밋한다. 중간에 DB 오류가 나면 그 전 배치까지는 저장된 채로 예외가 전파된다.
+ * 형식이 잘못된 행은 저장하지 않고 줄 번호와 이유를 결과에 담는다.
+ *
+ * NDJSON: {"username":"member1","age":10,"teamName":"teamA"}
+ * CSV: 첫 줄은 헤더(username,age,teamName 순서 무관), 큰따옴표로 감싼 값 안의 쉼표와 "" 를 지원한다.
+ */
+@Slf4j
+@Component
+public class MemberImporter {
+    
+    public enum Format {
+        NDJSON, CSV
+    }
+    
+    static final String SEQUENCE = "hibernate_sequence";
+    private static final String INSERT_TEAM = "insert into team (id, name) values (?, ?)";
+    private static final String INSERT_MEMBER =
+        "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)";
+    
+    private final int batchSize;
+    private final JPAQueryFactory queryFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final IdBlockAllocator idBlockAllocator;
+    private final BulkQueryExecutor bulkQueryExecutor;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate batchTransaction;
+    
+    public MemberImporter(@Value("${member.import.batch-size:1000}") int batchSize,
+        JPAQueryFactory queryFactory, JdbcTemplate jdbcTemplate, IdBlockAllocator idBlockAllocator,
+        BulkQueryExecutor bulkQueryExecutor, ObjectMapper objectMapper,
+        PlatformTransactionManager transactionManager) {
+        this.batchSize = batchSize;
+        this.queryFactory = queryFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.idBlockAllocator = idBlockAllocator;
+        this.bulkQueryExecutor = bulkQueryExecutor;
+        this.objectMapper = objectMapper;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    public MemberImportResult importMembers(InputStream input, Format format) throws IOException {
+        long start = System.currentTimeMillis();
+        MemberImportResult result = new MemberImportResult();
+        Map<String, Long> teams = loadTeams();
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Map<String, Integer> header = null;
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = csvHeader(line);
+                continue;
+            }
+            try {
+                batch.add(format == Format.CSV ? csvRow(line, header) : jsonRow(line));
+            } catch (IllegalArgumentException e) {
+                result.reject(lineNumber, e.getMessage());
+                continue;
+            }
+            if (batch.size() == batchSize) {
+                insert(batch, teams, result);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch, teams, result);
+        }
+        
+        result.finish(System.currentTimeMillis() - start);
+        log.info("member import finished: {}", result);
+        return result;
+    }
+    
+    private Map<String, Long> loadTeams() {
+        List<Tuple> rows = batchTransaction.execute(status -> queryFactory
+            .select(team.name, team.id)
+            .from(team)
+            .orderBy(team.id.asc())
+            .fetch());
+        Map<String, Long> teams = new HashMap<>();
+        for (Tuple row : rows) {
+            teams.putIfAbsent(row.get(team.name), row.get(team.id));
+        }
+        return teams;
+    }
+    
+    /**
+     * 새 팀은 커밋이 끝난 뒤에 캐시에 넣는다. 롤백된 팀 id를 다음 배치가 참조하면 안 된다.
+     */
+    private void insert(List<ImportRow> rows, Map<String, Long> teams, MemberImportResult result) {
+        Map<String, Long> newTeams = new LinkedHashMap<>();
+        batchTransaction.executeWithoutResult(status -> {
+            for (ImportRow row : rows) {
+                if (row.teamName != null && !teams.containsKey(row.teamName)) {
+                    newTeams.put(row.teamName, null);
+                }
+            }
+            if (!newTeams.isEmpty()) {
+                long[] teamIds = idBlockAllocator.allocate(SEQUENCE, newTeams.size());
+                List<Object[]> teamArgs = new ArrayList<>(newTeams.size());
+                int i = 0;
+                for (Map.Entry<String, Long> entry : newTeams.entrySet()) {
+                    entry.setValue(teamIds[i++]);
+                    teamArgs.add(new Object[]{entry.getValue(), entry.getKey()});
+                }
+                jdbcTemplate.batchUpdate(INSERT_TEAM, teamArgs);
+                bulkQueryExecutor.changed(Team.class, newTeams.size(), teamIds[0], teamIds[teamIds.length - 1]);
+            }
+            
+            long[] memberIds = idBlockAllocator.allocate(SEQUENCE, rows.size());
+            List<Object[]> memberArgs = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                ImportRow row = rows.get(i);
+                Long teamId = row.teamName == null ? null
+                    : teams.getOrDefault(row.teamName, newTeams.get(row.teamName));
+                memberArgs.add(new Object[]{memberIds[i], row.username, row.age, teamId});
+            }
+            jdbcTemplate.batchUpdate(INSERT_MEMBER, memberArgs);
+            bulkQueryExecutor.changed(Member.class, rows.size(), memberIds[0], memberIds[memberIds.length - 1]);
+        });
+        teams.putAll(newTeams);
+        result.batchInserted(rows.size(), newTeams.size());
+    }
+    
+    private ImportRow jsonRow(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("invalid json: " + e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("json object expected");
+        }
+        JsonNode age = node.get("age");
+        if (age != null && !age.isNull() && !age.canConvertToInt()) {
+            throw new IllegalArgumentException("age must be a number: " + age);
+        }
+        return new ImportRow(text(node.get("username")),
+            age == null || age.isNull() ? null : age.asText(),
+            text(node.get("teamName")));
+    }
+    
+    private static String text(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+    
+    private static Map<String, Integer> csvHeader(String line) {
+        List<String> columns = csvFields(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim().toLowerCase(), i);
+        }
+        if (!header.containsKey("username")) {
+            throw new IllegalArgumentException("csv header must contain username: " + line);
+        }
+        return header;
+    }
+    
+    private static ImportRow csvRow(String line, Map<String, Integer> header) {
+        List<String> fields = csvFields(line);
+        if (fields.size() != header.size()) {
+            throw new IllegalArgumentException("expected " + header.size() + " columns but was " + fields.size());
+        }
+        return new ImportRow(
+            csvValue(fields, header.get("username")),
+            csvValue(fields, header.get("age")),
+            csvValue(fields, header.get("teamname")));
+    }
+    
+    private static String csvValue(List<String> fields, Integer index) {
+        if (index == null) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private static class ImportRow {
+        
+        private final String username;
+        private final int age;
+        private final String teamName;
+        
+        ImportRow(String username, String age, String teamName) {
+            if (username == null || username.trim().isEmpty()) {
+                throw new IllegalArgumentException("username is required");
+            }
+            this.username = username;
+            this.age = parseAge(age);
+            this.teamName = teamName == null || teamName.trim().isEmpty() ? null : teamName;
+        }
+        
+        private static int parseAge(String age) {
+            if (age == null) {
+                return 0;
+            }
+            int parsed;
+            try {
+                parsed = Integer.parseInt(age.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("age must be a number: " + age);
+            }
+            if (parsed < 0) {
+                throw new IllegalArgumentException("age must not be negative: " + age);
+            }
+            return parsed;
+        }
+    }
+}
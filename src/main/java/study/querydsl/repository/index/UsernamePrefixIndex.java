@@ -0,0 +1,278 @@
+package study.querydsl.repository.index;
+
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.listener.BulkChangeEvent;
+import study.querydsl.entity.listener.EntityChangeEvent;
+import study.querydsl.repository.support.UnflushedChanges;
+import study.querydsl.startup.StartupTask;
+
+/**
+ * username -> member id 정렬 인덱스
+ * prefix를 후보 id 목록으로 바꿔 member.id in (...) PK 조회가 되도록 해준다.
+ *
+ * 인덱스는 항상 커밋된 데이터의 상위 집합(superset)을 유지한다.
+ * 1. 추가는 flush 시점에 바로 반영하고 롤백되면 되돌린다.
+ * 2. 삭제와 이전 username 제거는 커밋 이후에 반영한다.
+ * 따라서 후보 id에는 이미 username이 바뀐 회원이 섞여 있을 수 있다.
+ * 조회하는 쪽은 in 조건과 함께 username like 조건을 남겨서 후보 행만 다시 거른다.
+ */
+@Slf4j
+@Component
+@Order(100)
+public class UsernamePrefixIndex implements StartupTask {
+
+    /**
+     * in 절이 너무 길어지면 차라리 like 조회가 낫다.
+     */
+    public static final int MAX_IDS = 1000;
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+    private final TransactionTemplate rebuildTransaction;
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "username-prefix-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** 벌크 변경이 생길 때마다 증가. 재구성 도중 값이 바뀌면 그 결과는 믿을 수 없다. */
+    private final AtomicLong bulkGeneration = new AtomicLong();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private volatile Snapshot current = new Snapshot();
+    private volatile Snapshot building;
+    private volatile boolean ready;
+
+    public UsernamePrefixIndex(JPAQueryFactory queryFactory, EntityManager em,
+        PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.rebuildTransaction = new TransactionTemplate(transactionManager);
+        this.rebuildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildTransaction.setReadOnly(true);
+    }
+
+    /**
+     * prefix로 시작하는 username을 가진 member id 목록
+     * 인덱스를 믿을 수 없는 경우(재구성 중, 현재 트랜잭션에 flush되지 않은 변경이 있음, id가 너무 많음)에는
+     * 빈 Optional을 반환하므로 호출하는 쪽은 like 조회로 대체해야 한다.
+     */
+    public Optional<Set<Long>> lookup(String prefix) {
+        if (!ready || hasPendingChanges()) {
+            return Optional.empty();
+        }
+
+        Set<Long> ids = new HashSet<>();
+        for (Entry<String, Set<Long>> entry : current.ids.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            ids.addAll(entry.getValue());
+            if (ids.size() > MAX_IDS) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(ids);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public String getName() {
+        return "usernamePrefixIndex";
+    }
+    
+    /**
+     * 시작 작업으로 처음 인덱스를 만든다. 그 전까지 lookup()은 빈 값을 반환한다.
+     */
+    @Override
+    public void run() {
+        rebuild();
+    }
+    
+    public synchronized void rebuild() {
+        long generation = bulkGeneration.get();
+        ready = false;
+        Snapshot snapshot = new Snapshot();
+        building = snapshot;
+
+        List<Tuple> rows = rebuildTransaction.execute(status -> queryFactory
+            .select(member.id, member.username)
+            .from(member)
+            .fetch());
+        for (Tuple row : rows) {
+            snapshot.add(row.get(member.id), row.get(member.username));
+        }
+
+        current = snapshot;
+        building = null;
+        ready = generation == bulkGeneration.get();
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (!event.isFor(Member.class)) {
+            return;
+        }
+        Member changed = (Member) event.getEntity();
+        Long id = changed.getId();
+        String username = changed.getUsername();
+
+        switch (event.getType()) {
+            case PERSIST:
+                apply(s -> s.add(id, username));
+                afterCompletion(null, () -> apply(s -> s.remove(id, username)));
+                break;
+            case UPDATE:
+                String previous = current.usernames.get(id);
+                if (previous == null || !previous.equals(username)) {
+                    apply(s -> s.add(id, username));
+                    afterCompletion(
+                        () -> apply(s -> s.remove(id, previous)),
+                        () -> apply(s -> {
+                            s.remove(id, username);
+                            s.add(id, previous);
+                        }));
+                }
+                break;
+            case REMOVE:
+                afterCompletion(() -> apply(s -> s.remove(id, username)), null);
+                break;
+        }
+    }
+
+    /**
+     * 벌크 연산은 어떤 행이 바뀌었는지 알 수 없으므로 트랜잭션이 끝난 뒤 전체를 다시 읽는다.
+     * 그 전까지는 lookup()이 빈 값을 반환해 like 조회로 대체된다.
+     * 분할 벌크 작업처럼 짧은 벌크 트랜잭션이 연달아 커밋되는 경우가 있어서 재구성은 백그라운드에서 한 번으로 합친다.
+     */
+    @EventListener
+    public void onBulkChange(BulkChangeEvent event) {
+        if (!event.isFor(Member.class)) {
+            return;
+        }
+        bulkChanged();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    bulkChanged();
+                    scheduleRebuild();
+                }
+            });
+        } else {
+            scheduleRebuild();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void bulkChanged() {
+        bulkGeneration.incrementAndGet();
+        ready = false;
+    }
+
+    /**
+     * 재구성 중에 들어온 요청은 하나로 합쳐서 현재 재구성이 끝난 뒤 한 번 더 실행한다.
+     */
+    private void scheduleRebuild() {
+        if (!rebuildRequested.compareAndSet(false, true)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+            rebuildRequested.set(false);
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("username prefix index rebuild failed", e);
+            }
+        });
+    }
+
+    private boolean hasPendingChanges() {
+        return UnflushedChanges.exist(em, Member.class);
+    }
+
+    private void apply(Consumer<Snapshot> change) {
+        change.accept(current);
+        Snapshot rebuilding = building;
+        if (rebuilding != null) {
+            change.accept(rebuilding);
+        }
+    }
+
+    private void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (onCommit != null) {
+                onCommit.run();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                Runnable action = status == STATUS_COMMITTED ? onCommit : onRollback;
+                if (action != null) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static class Snapshot {
+
+        private final ConcurrentSkipListMap<String, Set<Long>> ids = new ConcurrentSkipListMap<>();
+        private final Map<Long, String> usernames = new ConcurrentHashMap<>();
+
+        void add(Long id, String username) {
+            if (id == null || username == null) {
+                return;
+            }
+            ids.computeIfAbsent(username, key -> ConcurrentHashMap.newKeySet()).add(id);
+            usernames.put(id, username);
+        }
+
+        void remove(Long id, String username) {
+            if (id == null || username == null) {
+                return;
+            }
+            ids.computeIfPresent(username, (key, set) -> {
+                set.remove(id);
+                return set.isEmpty() ? null : set;
+            });
+            usernames.remove(id, username);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package study.querydsl.repository.searchtable;
+
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.listener.BulkChangeEvent;
+import study.querydsl.entity.listener.EntityChangeEvent;
+import study.querydsl.startup.StartupTask;
+
+/**
+ * member_search 비정규화 테이블 관리 (MemberSearchRow)
+ * 엔티티 변경 이벤트(flush 시점)와 벌크 이벤트를 받아 같은 트랜잭션, 같은 커넥션에서 JDBC로 반영한다.
+ * 그래서 원본이 롤백되면 member_search 변경도 같이 롤백된다.
+ *
+ * 1. Member 저장/수정: 해당 회원 행을 지우고 다시 넣는다. 팀 이름은 team 테이블에서 읽는다.
+ * 2. Member 삭제: 해당 회원 행 삭제
+ * 3. Team 수정/삭제: 그 팀 회원들의 team_name 갱신
+ * 4. 벌크 이벤트: id 구간을 알면 그 구간만, 모르면 전체를 다시 만든다.
+ *
+ * member.search-table.enabled=false 면 갱신하지 않는다. 다시 켤 때는 rebuild()로 맞춰야 한다.
+ * member.search-table.endpoints 에 적은 엔드포인트(v1, v2, v3)만 이 테이블에서 조회한다. (MemberSearchTableRepository)
+ */
+@Slf4j
+@Component
+@Order(50)
+public class MemberSearchTable implements StartupTask {
+    
+    private static final String SELECT_MEMBERS = "select m.member_id, m.username, m.age, m.team_id, t.name"
+        + " from member m left join team t on t.id = m.team_id";
+    
+    private final boolean enabled;
+    private final Set<String> endpoints;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate rebuildTransaction;
+    
+    public MemberSearchTable(@Value("${member.search-table.enabled:false}") boolean enabled,
+        @Value("${member.search-table.endpoints:}") Set<String> endpoints,
+        JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.endpoints = endpoints;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rebuildTransaction = new TransactionTemplate(transactionManager);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * 이 엔드포인트의 조회를 member_search 에서 할지
+     */
+    public boolean serves(String endpoint) {
+        return enabled && endpoints.contains(endpoint);
+    }
+    
+    @Override
+    public String getName() {
+        return "memberSearchTable";
+    }
+    
+    @Override
+    public void run() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * member, team 으로부터 전체를 다시 만든다. 한 트랜잭션이라 끝날 때까지 다른 트랜잭션은 이전 내용을 본다.
+     * @return 만든 행 수
+     */
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        Integer rows = rebuildTransaction.execute(status -> {
+            jdbcTemplate.update("delete from member_search");
+            return jdbcTemplate.update("insert into member_search (member_id, username, age, team_id, team_name) "
+                + SELECT_MEMBERS);
+        });
+        log.info("member_search rebuilt: {} rows in {}ms", rows, System.currentTimeMillis() - start);
+        return rows == null ? 0 : rows;
+    }
+    
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isFor(Member.class)) {
+            Member member = (Member) event.getEntity();
+            jdbcTemplate.update("delete from member_search where member_id = ?", member.getId());
+            if (event.getType() != EntityChangeEvent.Type.REMOVE) {
+                insert(member);
+            }
+        } else if (event.isFor(Team.class)) {
+            Team team = (Team) event.getEntity();
+            if (event.getType() == EntityChangeEvent.Type.REMOVE) {
+                jdbcTemplate.update("update member_search set team_id = null, team_name = null where team_id = ?",
+                    team.getId());
+            } else if (event.getType() == EntityChangeEvent.Type.UPDATE) {
+                jdbcTemplate.update("update member_search set team_name = ? where team_id = ?",
+                    team.getName(), team.getId());
+            }
+        }
+    }
+    
+    @EventListener
+    public void onBulkChange(BulkChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isFor(Member.class)) {
+            if (event.hasIdRange()) {
+                jdbcTemplate.update("delete from member_search where member_id between ? and ?",
+                    event.getMinId(), event.getMaxId());
+                jdbcTemplate.update("insert into member_search (member_id, username, age, team_id, team_name) "
+                    + SELECT_MEMBERS + " where m.member_id between ? and ?", event.getMinId(), event.getMaxId());
+            } else {
+                jdbcTemplate.update("delete from member_search");
+                jdbcTemplate.update("insert into member_search (member_id, username, age, team_id, team_name) "
+                    + SELECT_MEMBERS);
+            }
+        } else if (event.isFor(Team.class)) {
+            String refreshTeamName = "update member_search s set team_name = "
+                + "(select t.name from team t where t.id = s.team_id)";
+            if (event.hasIdRange()) {
+                jdbcTemplate.update(refreshTeamName + " where s.team_id between ? and ?",
+                    event.getMinId(), event.getMaxId());
+            } else {
+                jdbcTemplate.update(refreshTeamName + " where s.team_id is not null");
+            }
+        }
+    }
+    
+    /**
+     * 엔티티 값으로 넣는다. flush 도중이라 영속성 컨텍스트로 프록시를 초기화하면 안 되므로
+     * 초기화되지 않은 팀의 이름은 team 테이블에서 읽는다.
+     */
+    private void insert(Member member) {
+        Team team = member.getTeam();
+        if (team == null) {
+            jdbcTemplate.update("insert into member_search (member_id, username, age, team_id, team_name) "
+                + "values (?, ?, ?, null, null)", member.getId(), member.getUsername(), member.getAge());
+        } else if (Hibernate.isInitialized(team)) {
+            jdbcTemplate.update("insert into member_search (member_id, username, age, team_id, team_name) "
+                + "values (?, ?, ?, ?, ?)", member.getId(), member.getUsername(), member.getAge(),
+                team.getId(), team.getName());
+        } else {
+            jdbcTemplate.update("insert into member_search (member_id, username, age, team_id, team_name) "
+                + "select ?, ?, ?, t.id, t.name from team t where t.id = ?",
+                member.getId(), member.getUsername(), member.getAge(), team.getId());
+        }
+    }
+}
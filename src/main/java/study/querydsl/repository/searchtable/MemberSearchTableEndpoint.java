@@ -0,0 +1,32 @@
+package study.querydsl.repository.searchtable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * member_search 재생성 명령
+ * 기본으로 웹에 노출하지 않는다. JMX(spring.jmx.enabled=true)로 호출하거나
+ * management.endpoints.web.exposure.include 에 추가하면 POST /actuator/membersearchtable
+ */
+@Component
+@Endpoint(id = "membersearchtable")
+@RequiredArgsConstructor
+public class MemberSearchTableEndpoint {
+    
+    private final MemberSearchTable memberSearchTable;
+    
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        int rows = memberSearchTable.rebuild();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", rows);
+        result.put("elapsedMillis", System.currentTimeMillis() - start);
+        result.put("maintained", memberSearchTable.isEnabled());
+        return result;
+    }
+}
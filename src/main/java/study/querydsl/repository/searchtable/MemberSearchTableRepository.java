@@ -0,0 +1,141 @@
+package study.querydsl.repository.searchtable;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMemberSearchRow.memberSearchRow;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import java.util.function.LongSupplier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.writebehind.MemberAgeWriteBehind;
+
+/**
+ * member_search 비정규화 테이블(MemberSearchRow)에서 조인 없이 검색한다.
+ * 결과와 페이징 규칙은 MemberRepositoryImpl 과 같다. (정렬 조건 미적용, 대기 중인 age 증감값 반영)
+ * member.search-table.enabled=false 면 테이블이 갱신되지 않으므로 MemberSearchTable.serves()를 확인하고 써야 한다.
+ */
+@Repository
+public class MemberSearchTableRepository implements MemberRepositoryCustom {
+    
+    private static final int COLUMNS_CHUNK_SIZE = 10000;
+    
+    private final JPAQueryFactory queryFactory;
+    private final MemberAgeWriteBehind memberAgeWriteBehind;
+    
+    public MemberSearchTableRepository(JPAQueryFactory queryFactory, MemberAgeWriteBehind memberAgeWriteBehind) {
+        this.queryFactory = queryFactory;
+        this.memberAgeWriteBehind = memberAgeWriteBehind;
+    }
+    
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return memberAgeWriteBehind.read(condition, () -> contentQuery(condition).fetch());
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return memberAgeWriteBehind.read(condition, () -> {
+            List<MemberTeamDto> content = contentQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+            return new PageImpl<>(content, pageable, count(condition));
+        });
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchPage(condition, pageable, () -> count(condition));
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable,
+        LongSupplier total) {
+        return memberAgeWriteBehind.read(condition, () -> {
+            List<MemberTeamDto> content = contentQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+            return PageableExecutionUtils.getPage(content, pageable, total);
+        });
+    }
+    
+    @Override
+    public List<MemberTeamDto> searchRange(MemberSearchCondition condition, long fromId, long toId) {
+        return memberAgeWriteBehind.read(condition, () -> contentQuery(condition)
+            .where(memberSearchRow.memberId.goe(fromId), memberSearchRow.memberId.lt(toId))
+            .orderBy(memberSearchRow.memberId.asc())
+            .fetch());
+    }
+    
+    @Override
+    public MemberTeamColumns searchColumns(MemberSearchCondition condition) {
+        return memberAgeWriteBehind.readColumns(condition, () -> {
+            MemberTeamColumns.Builder builder = MemberTeamColumns.builder();
+            Long lastId = null;
+            while (true) {
+                List<Tuple> rows = queryFactory
+                    .select(memberSearchRow.memberId, memberSearchRow.username, memberSearchRow.age,
+                        memberSearchRow.teamId, memberSearchRow.teamName)
+                    .from(memberSearchRow)
+                    .where(conditions(condition))
+                    .where(lastId == null ? null : memberSearchRow.memberId.gt(lastId))
+                    .orderBy(memberSearchRow.memberId.asc())
+                    .limit(COLUMNS_CHUNK_SIZE)
+                    .fetch();
+                for (Tuple row : rows) {
+                    builder.add(row.get(memberSearchRow.memberId), row.get(memberSearchRow.username),
+                        row.get(memberSearchRow.age), row.get(memberSearchRow.teamId),
+                        row.get(memberSearchRow.teamName));
+                }
+                if (rows.size() < COLUMNS_CHUNK_SIZE) {
+                    return builder.build();
+                }
+                lastId = rows.get(rows.size() - 1).get(memberSearchRow.memberId);
+            }
+        });
+    }
+    
+    private JPAQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition) {
+        return queryFactory
+            .select(new QMemberTeamDto(
+                memberSearchRow.memberId,
+                memberSearchRow.username,
+                memberSearchRow.age,
+                memberSearchRow.teamId,
+                memberSearchRow.teamName))
+            .from(memberSearchRow)
+            .where(conditions(condition));
+    }
+    
+    private long count(MemberSearchCondition condition) {
+        return queryFactory
+            .select(memberSearchRow.count())
+            .from(memberSearchRow)
+            .where(conditions(condition))
+            .fetchOne();
+    }
+    
+    private Predicate[] conditions(MemberSearchCondition condition) {
+        return new Predicate[]{
+            hasText(condition.getUsername()) ? memberSearchRow.username.eq(condition.getUsername()) : null,
+            hasText(condition.getUsernamePrefix())
+                ? memberSearchRow.username.startsWith(condition.getUsernamePrefix()) : null,
+            hasText(condition.getTeamName()) ? memberSearchRow.teamName.eq(condition.getTeamName()) : null,
+            condition.getAgeGoe() == null ? null : memberSearchRow.age.goe(condition.getAgeGoe()),
+            condition.getAgeLoe() == null ? null : memberSearchRow.age.loe(condition.getAgeLoe())
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package study.querydsl.repository.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.importer.IdBlockAllocator;
+import study.querydsl.repository.support.TableVersions;
+
+/**
+ * team id 기준으로 나눈 member/team 샤드 (member.sharding.urls 에 적은 순서가 샤드 번호)
+ * 팀과 그 팀의 회원은 같은 샤드(team id % 샤드 수)에 저장한다. 팀이 없는 회원은 0번 샤드에 둔다.
+ * id는 기본 DB의 hibernate_sequence 에서 받으므로 샤드끼리 겹치지 않고 member id 순서로 합칠 수 있다.
+ *
+ * teamName 조건은 팀 이름 → 샤드 사전으로 해당 샤드에만 보낸다.
+ * 사전은 처음 쓸 때 모든 샤드의 team 테이블에서 읽고, 이후에는 saveTeam 으로 추가된 팀만 반영한다.
+ * (샤드 DB를 직접 고치면 reloadTeamDirectory()를 호출해야 한다.)
+ *
+ * saveTeam/saveMember 는 JPA를 거치지 않으므로 EntityChangeEvent, BulkChangeEvent 를 발행하지 않는다.
+ * 대신 ETag가 바뀌도록 TableVersions 만 직접 올린다. 샤드 DB를 직접 고치면 ETag는 바뀌지 않는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.sharding.enabled", havingValue = "true")
+public class MemberShards {
+    
+    private static final String[] SCHEMA = {
+        "create table if not exists team (team_id bigint primary key, name varchar(255))",
+        "create table if not exists member (member_id bigint primary key, username varchar(255), "
+            + "age int not null, team_id bigint)",
+        "create index if not exists member_team_id on member (team_id)"
+    };
+    
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final IdBlockAllocator idBlockAllocator;
+    private final TableVersions tableVersions;
+    private final ExecutorService fanOut;
+    private final Map<String, Set<Integer>> teamDirectory = new ConcurrentHashMap<>();
+    private volatile boolean teamDirectoryLoaded;
+    
+    public MemberShards(@Value("${member.sharding.urls}") List<String> urls,
+        @Value("${member.sharding.pool-size:4}") int poolSize,
+        @Value("${spring.datasource.username:sa}") String username,
+        @Value("${spring.datasource.password:}") String password,
+        IdBlockAllocator idBlockAllocator, TableVersions tableVersions) {
+        Assert.notEmpty(urls, "member.sharding.urls must not be empty");
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("member-shard-" + i);
+            dataSource.setJdbcUrl(urls.get(i).trim());
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSources.add(dataSource);
+            
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            for (String ddl : SCHEMA) {
+                jdbcTemplate.execute(ddl);
+            }
+            shards.add(jdbcTemplate);
+        }
+        this.idBlockAllocator = idBlockAllocator;
+        this.tableVersions = tableVersions;
+        AtomicInteger threads = new AtomicInteger();
+        this.fanOut = Executors.newFixedThreadPool(urls.size() * poolSize, r -> {
+            Thread thread = new Thread(r, "member-shard-fan-out-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public int size() {
+        return shards.size();
+    }
+    
+    public int shardOf(Long teamId) {
+        return teamId == null ? 0 : (int) Math.floorMod(teamId, (long) shards.size());
+    }
+    
+    /**
+     * teamName 조건이 있으면 그 이름의 팀이 있는 샤드만, 없으면 전체 샤드
+     */
+    public Set<Integer> shardsFor(String teamName) {
+        if (!StringUtils.hasText(teamName)) {
+            Set<Integer> all = new TreeSet<>();
+            for (int i = 0; i < shards.size(); i++) {
+                all.add(i);
+            }
+            return all;
+        }
+        if (!teamDirectoryLoaded) {
+            reloadTeamDirectory();
+        }
+        return teamDirectory.getOrDefault(teamName, Collections.emptySet());
+    }
+    
+    public synchronized void reloadTeamDirectory() {
+        Map<String, Set<Integer>> loaded = new ConcurrentHashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            shards.get(i).queryForList("select name from team", String.class)
+                .forEach(name -> loaded.computeIfAbsent(name, n -> new TreeSet<>()).add(shard));
+        }
+        teamDirectory.clear();
+        teamDirectory.putAll(loaded);
+        teamDirectoryLoaded = true;
+    }
+    
+    public long saveTeam(String name) {
+        long teamId = idBlockAllocator.allocate("hibernate_sequence", 1)[0];
+        int shard = shardOf(teamId);
+        shards.get(shard).update("insert into team (team_id, name) values (?, ?)", teamId, name);
+        teamDirectory.compute(name, (n, current) -> {
+            Set<Integer> updated = current == null ? new TreeSet<>() : new TreeSet<>(current);
+            updated.add(shard);
+            return updated;
+        });
+        tableVersions.touch(Team.class);
+        return teamId;
+    }
+    
+    public long saveMember(String username, int age, Long teamId) {
+        long memberId = idBlockAllocator.allocate("hibernate_sequence", 1)[0];
+        shards.get(shardOf(teamId)).update(
+            "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)",
+            memberId, username, age, teamId);
+        tableVersions.touch(Member.class);
+        return memberId;
+    }
+    
+    /**
+     * 각 샤드에서 query를 병렬로 실행하고 샤드 번호 순서로 결과를 모은다.
+     */
+    public <T> List<T> scatter(Set<Integer> targets, Function<JdbcTemplate, T> query) {
+        List<CompletableFuture<T>> futures = targets.stream()
+            .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shards.get(shard)), fanOut))
+            .collect(Collectors.toList());
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                futures.forEach(f -> f.cancel(true));
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        fanOut.shutdownNow();
+        dataSources.forEach(HikariDataSource::close);
+    }
+}
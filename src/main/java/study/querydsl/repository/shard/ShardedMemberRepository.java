@@ -0,0 +1,219 @@
+package study.querydsl.repository.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepositoryCustom;
+
+/**
+ * MemberShards 에 나눠 저장한 회원을 검색한다. (scatter-gather)
+ * 대상 샤드에 같은 쿼리를 병렬로 보내고, 샤드별로 member id 순서로 받은 결과를 k-way merge로 합친다.
+ *
+ * 페이징은 샤드마다 offset + size 건을 받아서 합친 뒤 offset 만큼 건너뛴다.
+ * 샤드 하나에서 offset 뒤의 행만 받으면 다른 샤드와 섞인 전역 순서를 알 수 없기 때문이다.
+ * 그래서 뒤쪽 페이지일수록 비싸다. count는 샤드별 count의 합이다.
+ * JPA 쪽과 마찬가지로 Pageable의 정렬 조건은 적용하지 않는다. (member id 순서)
+ *
+ * member.sharding.endpoints 에 적은 엔드포인트(v1, v2, v3)는 MemberController 가 이 리포지토리로 조회한다. (기본값은 없음)
+ * 샤드 데이터는 MemberShards 로만 쓰므로 엔티티 이벤트를 쓰는 기능(member_search, 핫 티어, 집계, write-behind)은 적용되지 않는다.
+ * JPA 저장, MemberImporter, MemberTeamTransfer, write-behind flush 는 기본 DB에만 쓰므로
+ * 이런 쓰기가 있는 배포에서 엔드포인트를 켜면 비어 있거나 오래된 샤드 데이터를 응답한다.
+ */
+@Repository
+@ConditionalOnProperty(name = "member.sharding.enabled", havingValue = "true")
+public class ShardedMemberRepository implements MemberRepositoryCustom {
+    
+    private static final String SELECT = "select m.member_id, m.username, m.age, m.team_id, t.name"
+        + " from member m left join team t on t.team_id = m.team_id";
+    
+    private static final RowMapper<MemberTeamDto> ROW_MAPPER = (rs, rowNum) -> new MemberTeamDto(
+        rs.getLong("member_id"),
+        rs.getString("username"),
+        rs.getInt("age"),
+        (Long) rs.getObject("team_id"),
+        rs.getString("name"));
+    
+    private static final Comparator<MemberTeamDto> BY_MEMBER_ID = Comparator.comparing(MemberTeamDto::getMemberId);
+    
+    private final MemberShards shards;
+    private final Set<String> endpoints;
+    
+    public ShardedMemberRepository(MemberShards shards,
+        @Value("${member.sharding.endpoints:}") Set<String> endpoints) {
+        this.shards = shards;
+        this.endpoints = endpoints;
+    }
+    
+    /**
+     * 이 엔드포인트의 조회를 샤드에서 할지
+     */
+    public boolean serves(String endpoint) {
+        return endpoints.contains(endpoint);
+    }
+    
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        Where where = new Where(condition);
+        return merge(shards.scatter(shards.shardsFor(condition.getTeamName()), jdbc -> jdbc.query(
+            SELECT + where.sql + " order by m.member_id", ROW_MAPPER, where.args.toArray())),
+            0, Long.MAX_VALUE);
+    }
+    
+    /**
+     * member id 순서로 앞에서부터 limit 건 (과부하 시 축소 조회)
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition, int limit) {
+        return fetchPage(condition, PageRequest.of(0, limit));
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = fetchPage(condition, pageable);
+        return new PageImpl<>(content, pageable, count(condition));
+    }
+    
+    /**
+     * 첫 페이지가 다 차지 않았거나 마지막 페이지면 샤드별 count 쿼리를 생략한다.
+     */
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = fetchPage(condition, pageable);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(condition));
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable,
+        LongSupplier total) {
+        return PageableExecutionUtils.getPage(fetchPage(condition, pageable), pageable, total);
+    }
+    
+    @Override
+    public List<MemberTeamDto> searchRange(MemberSearchCondition condition, long fromId, long toId) {
+        Where where = new Where(condition);
+        where.and("m.member_id >= ?", fromId);
+        where.and("m.member_id < ?", toId);
+        return merge(shards.scatter(shards.shardsFor(condition.getTeamName()), jdbc -> jdbc.query(
+            SELECT + where.sql + " order by m.member_id", ROW_MAPPER, where.args.toArray())),
+            0, Long.MAX_VALUE);
+    }
+    
+    private List<MemberTeamDto> fetchPage(MemberSearchCondition condition, Pageable pageable) {
+        Where where = new Where(condition);
+        long limit = pageable.getOffset() + pageable.getPageSize();
+        List<Object> args = new ArrayList<>(where.args);
+        args.add(limit);
+        return merge(shards.scatter(shards.shardsFor(condition.getTeamName()), jdbc -> jdbc.query(
+            SELECT + where.sql + " order by m.member_id limit ?", ROW_MAPPER, args.toArray())),
+            pageable.getOffset(), pageable.getPageSize());
+    }
+    
+    private long count(MemberSearchCondition condition) {
+        Where where = new Where(condition);
+        return shards.scatter(shards.shardsFor(condition.getTeamName()), jdbc -> jdbc.queryForObject(
+            "select count(*) from member m left join team t on t.team_id = m.team_id" + where.sql,
+            Long.class, where.args.toArray()))
+            .stream()
+            .mapToLong(Long::longValue)
+            .sum();
+    }
+    
+    /**
+     * 샤드별로 정렬된 목록을 합치면서 앞에서 offset 건을 버리고 limit 건만 모은다.
+     */
+    static List<MemberTeamDto> merge(List<List<MemberTeamDto>> sortedRuns, long offset, long limit) {
+        PriorityQueue<Run> heap = new PriorityQueue<>(Math.max(1, sortedRuns.size()),
+            (a, b) -> BY_MEMBER_ID.compare(a.head, b.head));
+        for (List<MemberTeamDto> sorted : sortedRuns) {
+            Iterator<MemberTeamDto> iterator = sorted.iterator();
+            if (iterator.hasNext()) {
+                heap.add(new Run(iterator));
+            }
+        }
+        
+        List<MemberTeamDto> result = new ArrayList<>();
+        long skipped = 0;
+        while (!heap.isEmpty() && result.size() < limit) {
+            Run run = heap.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(run.head);
+            }
+            if (run.advance()) {
+                heap.add(run);
+            }
+        }
+        return result;
+    }
+    
+    private static class Run {
+        
+        private final Iterator<MemberTeamDto> iterator;
+        private MemberTeamDto head;
+        
+        Run(Iterator<MemberTeamDto> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+        
+        boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            head = iterator.next();
+            return true;
+        }
+    }
+    
+    /**
+     * MemberRepositoryImpl 의 조건 메서드(usernameEq, teamNameEq ...)와 같은 조건을 SQL로 만든다.
+     */
+    private static class Where {
+        
+        private String sql = "";
+        private final List<Object> args = new ArrayList<>();
+        
+        Where(MemberSearchCondition condition) {
+            if (StringUtils.hasText(condition.getUsername())) {
+                and("m.username = ?", condition.getUsername());
+            }
+            if (StringUtils.hasText(condition.getUsernamePrefix())) {
+                and("m.username like ? escape '\\'", escapeLike(condition.getUsernamePrefix()) + "%");
+            }
+            if (StringUtils.hasText(condition.getTeamName())) {
+                and("t.name = ?", condition.getTeamName());
+            }
+            if (condition.getAgeGoe() != null) {
+                and("m.age >= ?", condition.getAgeGoe());
+            }
+            if (condition.getAgeLoe() != null) {
+                and("m.age <= ?", condition.getAgeLoe());
+            }
+        }
+        
+        void and(String predicate, Object arg) {
+            sql += (sql.isEmpty() ? " where " : " and ") + predicate;
+            args.add(arg);
+        }
+        
+        private static String escapeLike(String value) {
+            return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        }
+    }
+}
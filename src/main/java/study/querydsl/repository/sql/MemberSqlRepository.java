@@ -0,0 +1,180 @@
+package study.querydsl.repository.sql;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import javax.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.writebehind.MemberAgeWriteBehind;
+
+/**
+ * querydsl-sql 로 member/team 테이블을 직접 조회한다. JPQL 변환, HQL 파싱, 엔티티 하이드레이션 없이 행을 바로 MemberTeamDto 로 만든다.
+ * 결과와 페이징 규칙은 MemberRepositoryImpl 과 같다. (정렬 조건 미적용, 대기 중인 age 증감값 반영)
+ * 핫 티어, username 접두사 인덱스, 팀 사전 같은 MemberRepositoryImpl 의 최적화는 거치지 않고 항상 SQL 한 번(페이징은 + count)이다.
+ *
+ * JPA 의 자동 flush 가 일어나지 않으므로 트랜잭션 안이면 조회 전에 영속성 컨텍스트를 직접 flush 한다.
+ * member.sql-search.endpoints 에 적은 엔드포인트(v1, v2, v3)만 이 리포지토리로 조회한다. (member.sql-search.enabled=true 일 때)
+ */
+@Repository
+public class MemberSqlRepository implements MemberRepositoryCustom {
+    
+    private static final int COLUMNS_CHUNK_SIZE = 10000;
+    
+    private final boolean enabled;
+    private final Set<String> endpoints;
+    private final SQLQueryFactory queryFactory;
+    private final EntityManager em;
+    private final MemberAgeWriteBehind memberAgeWriteBehind;
+    
+    public MemberSqlRepository(@Value("${member.sql-search.enabled:false}") boolean enabled,
+        @Value("${member.sql-search.endpoints:}") Set<String> endpoints,
+        SQLQueryFactory queryFactory, EntityManager em, MemberAgeWriteBehind memberAgeWriteBehind) {
+        this.enabled = enabled;
+        this.endpoints = endpoints;
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.memberAgeWriteBehind = memberAgeWriteBehind;
+    }
+    
+    /**
+     * 이 엔드포인트의 조회를 querydsl-sql 로 할지
+     */
+    public boolean serves(String endpoint) {
+        return enabled && endpoints.contains(endpoint);
+    }
+    
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return memberAgeWriteBehind.read(condition, () -> contentQuery(condition).fetch());
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return memberAgeWriteBehind.read(condition, () -> {
+            List<MemberTeamDto> content = contentQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+            return new PageImpl<>(content, pageable, count(condition));
+        });
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchPage(condition, pageable, () -> count(condition));
+    }
+    
+    @Override
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable,
+        LongSupplier total) {
+        return memberAgeWriteBehind.read(condition, () -> {
+            List<MemberTeamDto> content = contentQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+            return PageableExecutionUtils.getPage(content, pageable, total);
+        });
+    }
+    
+    @Override
+    public List<MemberTeamDto> searchRange(MemberSearchCondition condition, long fromId, long toId) {
+        return memberAgeWriteBehind.read(condition, () -> contentQuery(condition)
+            .where(member.memberId.goe(fromId), member.memberId.lt(toId))
+            .orderBy(member.memberId.asc())
+            .fetch());
+    }
+    
+    @Override
+    public MemberTeamColumns searchColumns(MemberSearchCondition condition) {
+        return memberAgeWriteBehind.readColumns(condition, () -> {
+            flushPersistenceContext();
+            MemberTeamColumns.Builder builder = MemberTeamColumns.builder();
+            Long lastId = null;
+            while (true) {
+                List<Tuple> rows = queryFactory
+                    .select(member.memberId, member.username, member.age, team.id, team.name)
+                    .from(member)
+                    .leftJoin(team).on(team.id.eq(member.teamId))
+                    .where(conditions(condition))
+                    .where(lastId == null ? null : member.memberId.gt(lastId))
+                    .orderBy(member.memberId.asc())
+                    .limit(COLUMNS_CHUNK_SIZE)
+                    .fetch();
+                for (Tuple row : rows) {
+                    builder.add(row.get(member.memberId), row.get(member.username), row.get(member.age),
+                        row.get(team.id), row.get(team.name));
+                }
+                if (rows.size() < COLUMNS_CHUNK_SIZE) {
+                    return builder.build();
+                }
+                lastId = rows.get(rows.size() - 1).get(member.memberId);
+            }
+        });
+    }
+    
+    private SQLQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition) {
+        flushPersistenceContext();
+        return queryFactory
+            .select(new QMemberTeamDto(
+                member.memberId,
+                member.username,
+                member.age,
+                team.id,
+                team.name))
+            .from(member)
+            .leftJoin(team).on(team.id.eq(member.teamId))
+            .where(conditions(condition));
+    }
+    
+    /**
+     * teamName 조건이 없으면 team 조인 없이 센다.
+     */
+    private long count(MemberSearchCondition condition) {
+        SQLQuery<Long> query = queryFactory
+            .select(member.memberId.count())
+            .from(member);
+        if (hasText(condition.getTeamName())) {
+            query.join(team).on(team.id.eq(member.teamId));
+        }
+        return query.where(conditions(condition)).fetchOne();
+    }
+    
+    /**
+     * 같은 트랜잭션의 아직 flush 되지 않은 엔티티 변경이 결과에 보이도록 한다. (JPQL 조회의 자동 flush 대신)
+     */
+    private void flushPersistenceContext() {
+        if (TransactionSynchronizationManager.isActualTransactionActive() && em.isJoinedToTransaction()) {
+            em.flush();
+        }
+    }
+    
+    private Predicate[] conditions(MemberSearchCondition condition) {
+        return new Predicate[]{
+            hasText(condition.getUsername()) ? member.username.eq(condition.getUsername()) : null,
+            hasText(condition.getUsernamePrefix())
+                ? member.username.startsWith(condition.getUsernamePrefix()) : null,
+            hasText(condition.getTeamName()) ? team.name.eq(condition.getTeamName()) : null,
+            condition.getAgeGoe() == null ? null : member.age.goe(condition.getAgeGoe()),
+            condition.getAgeLoe() == null ? null : member.age.loe(condition.getAgeLoe())
+        };
+    }
+}
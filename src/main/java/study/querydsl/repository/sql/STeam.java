@@ -0,0 +1,49 @@
+package study.querydsl.repository.sql;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.PrimaryKey;
+import com.querydsl.sql.RelationalPathBase;
+import java.sql.Types;
+
+/**
+ * team 테이블 (querydsl-sql 쿼리 타입, MetaDataExporter 출력 형식)
+ * 스키마는 JPA 엔티티(Team)에서 만들어지므로 엔티티 매핑을 바꾸면 같이 고쳐야 한다.
+ */
+public class STeam extends RelationalPathBase<STeam> {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public static final STeam team = new STeam("TEAM");
+    
+    public final NumberPath<Long> id = createNumber("id", Long.class);
+    
+    public final StringPath name = createString("name");
+    
+    public final PrimaryKey<STeam> primary = createPrimaryKey(id);
+    
+    public STeam(String variable) {
+        super(STeam.class, forVariable(variable), "PUBLIC", "TEAM");
+        addMetadata();
+    }
+    
+    public STeam(Path<? extends STeam> path) {
+        super(path.getType(), path.getMetadata(), "PUBLIC", "TEAM");
+        addMetadata();
+    }
+    
+    public STeam(PathMetadata metadata) {
+        super(STeam.class, metadata, "PUBLIC", "TEAM");
+        addMetadata();
+    }
+    
+    public void addMetadata() {
+        addMetadata(id, ColumnMetadata.named("ID").withIndex(1).ofType(Types.BIGINT).withSize(19).notNull());
+        addMetadata(name, ColumnMetadata.named("NAME").withIndex(2).ofType(Types.VARCHAR).withSize(255));
+    }
+}
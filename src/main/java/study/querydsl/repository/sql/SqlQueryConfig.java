@@ -0,0 +1,32 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.SQLTemplates;
+import com.querydsl.sql.SQLTemplatesRegistry;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+
+/**
+ * JPA 와 같은 DataSource 를 쓰는 querydsl-sql SQLQueryFactory
+ * TransactionAwareDataSourceProxy 로 감싸서 JPA 트랜잭션 안에서는 그 트랜잭션의 커넥션을 쓰고,
+ * 트랜잭션 밖에서는 쿼리마다 커넥션을 받아 끝나면 반납한다.
+ */
+@Configuration
+public class SqlQueryConfig {
+    
+    @Bean
+    SQLQueryFactory sqlQueryFactory(DataSource dataSource) throws SQLException {
+        SQLTemplates templates;
+        try (Connection connection = dataSource.getConnection()) {
+            templates = new SQLTemplatesRegistry().getTemplates(connection.getMetaData());
+        }
+        com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(templates);
+        configuration.setExceptionTranslator(new SpringExceptionTranslator());
+        return new SQLQueryFactory(configuration, new TransactionAwareDataSourceProxy(dataSource));
+    }
+}
@@ -0,0 +1,115 @@
+package study.querydsl.repository.stats;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+/**
+ * Hibernate 통계에 HQL별 호출 위치(리포지토리 메서드)를 더한다.
+ * 호출 위치는 스택을 훑어서 찾으므로 매번 하지 않고 HQL별 첫 실행과 sampleInterval 번째 실행마다 한다.
+ * 같은 HQL을 여러 메서드가 만들면 위치가 여러 개 남는다. (HQL 하나당 MAX_ORIGINS 개까지)
+ *
+ * Hibernate 5.4 내부 구현(StatisticsImpl, StatisticsInitiator.STATS_BUILDER)에 묶여 있으므로 Hibernate를 올릴 때 다시 확인한다.
+ * StatementInspector 는 SQL만 받아서 HQL별 통계에 위치를 붙일 수 없고, 5.4 에는 HQL 실행을 알려주는 공개 SPI가 없다.
+ * 통계가 이 클래스가 아니면 QueryStatisticsReport 는 위치를 unknown 으로 낸다.
+ */
+public class QueryOriginStatistics extends StatisticsImpl {
+    
+    private static final long serialVersionUID = 1L;
+    
+    static final int MAX_ORIGINS = 8;
+    static final String UNKNOWN = "unknown";
+    
+    private static final String APPLICATION_PACKAGE = "study.querydsl.";
+    private static final String REPOSITORY_PACKAGE = "study.querydsl.repository.";
+    
+    private final int sampleInterval;
+    private final Map<String, Set<String>> origins = new ConcurrentHashMap<>();
+    
+    public QueryOriginStatistics(SessionFactoryImplementor sessionFactory, int sampleInterval) {
+        super(sessionFactory);
+        this.sampleInterval = Math.max(1, sampleInterval);
+    }
+    
+    @Override
+    public void queryExecuted(String hql, int rows, long time) {
+        super.queryExecuted(hql, rows, time);
+        long count = getQueryStatistics(hql).getExecutionCount();
+        if (count != 1 && count % sampleInterval != 0) {
+            return;
+        }
+        Set<String> found = origins.get(hql);
+        if (found == null) {
+            if (origins.size() >= Statistics.DEFAULT_QUERY_STATISTICS_MAX_SIZE) {
+                return;
+            }
+            found = origins.computeIfAbsent(hql, key -> ConcurrentHashMap.newKeySet());
+        }
+        if (found.size() < MAX_ORIGINS) {
+            found.add(origin());
+        }
+    }
+    
+    @Override
+    public void clear() {
+        super.clear();
+        // StatisticsImpl 생성자에서도 호출되므로 필드 초기화 전일 수 있다.
+        if (origins != null) {
+            origins.clear();
+        }
+    }
+    
+    /**
+     * 아직 표본을 뜨지 않은 HQL이면 빈 집합
+     */
+    public Set<String> getOrigins(String hql) {
+        return origins.getOrDefault(hql, Collections.emptySet());
+    }
+    
+    /**
+     * 가장 바깥 리포지토리 메서드, 쿼리를 실제로 만든 가장 안쪽 메서드가 다르면 "바깥 > 안쪽"
+     * 예) MemberTestRepository.applyPagination2 > Querydsl4RepositorySupport.applyPagination
+     * 리포지토리를 거치지 않은 쿼리는 가장 안쪽 애플리케이션 메서드. 테스트 클래스(...Test)는 리포지토리 메서드로 보지 않는다.
+     */
+    static String origin() {
+        List<String> frames = StackWalker.getInstance().walk(stream -> stream
+            .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE))
+            .filter(frame -> !frame.getClassName().contains("$$"))
+            .filter(frame -> !frame.getClassName().equals(QueryOriginStatistics.class.getName()))
+            .map(frame -> frame.getClassName() + "#" + frame.getMethodName())
+            .collect(Collectors.toList()));
+        List<String> repositoryFrames = frames.stream()
+            .filter(frame -> frame.startsWith(REPOSITORY_PACKAGE) && !frame.contains("Test#"))
+            .collect(Collectors.toList());
+        if (repositoryFrames.isEmpty()) {
+            return frames.isEmpty() ? UNKNOWN : simpleName(frames.get(0));
+        }
+        String inner = simpleName(repositoryFrames.get(0));
+        String outer = simpleName(repositoryFrames.get(repositoryFrames.size() - 1));
+        return inner.equals(outer) ? outer : outer + " > " + inner;
+    }
+    
+    /**
+     * study.querydsl.repository.MemberRepositoryImpl#lambda$searchPageSimple$2 -> MemberRepositoryImpl.searchPageSimple
+     */
+    static String simpleName(String frame) {
+        int hash = frame.indexOf('#');
+        String className = frame.substring(frame.lastIndexOf('.', hash) + 1, hash);
+        String methodName = frame.substring(hash + 1);
+        if (methodName.startsWith("lambda$")) {
+            methodName = Optional.of(methodName.split("\\$"))
+                .filter(parts -> parts.length > 1)
+                .map(parts -> parts[1])
+                .orElse(methodName);
+        }
+        int nested = className.indexOf('$');
+        return (nested < 0 ? className : className.substring(0, nested)) + "." + methodName;
+    }
+}
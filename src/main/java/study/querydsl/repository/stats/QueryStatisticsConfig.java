@@ -0,0 +1,29 @@
+package study.querydsl.repository.stats;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.internal.StatisticsInitiator;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate 통계를 QueryOriginStatistics 로 모은다. 기본은 꺼져 있고 member.statistics.enabled=true 로 켠다.
+ * 통계는 원자적 카운터 갱신 정도의 비용이다. 세션마다 통계를 INFO 로그로 남기는 리스너는 비용이 크므로
+ * logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener 를 warn 으로 둔다.
+ */
+@Configuration
+public class QueryStatisticsConfig {
+    
+    @Bean
+    HibernatePropertiesCustomizer queryOriginStatisticsCustomizer(
+        @Value("${member.statistics.enabled:false}") boolean enabled,
+        @Value("${member.statistics.origin-sample-interval:100}") int sampleInterval) {
+        StatisticsFactory factory = sessionFactory -> new QueryOriginStatistics(sessionFactory, sampleInterval);
+        return properties -> {
+            properties.put(StatisticsInitiator.STATS_BUILDER, factory);
+            properties.put(AvailableSettings.GENERATE_STATISTICS, String.valueOf(enabled));
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package study.querydsl.repository.stats;
+
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate 통계 수집 제어
+ * 기본으로 웹에 노출하지 않는다. JMX(spring.jmx.enabled=true)로 호출하거나
+ * management.endpoints.web.exposure.include 에 추가하면
+ * POST /actuator/hibernatestatscontrol {"enabled": false} : 통계 수집 켜고 끄기
+ * DELETE /actuator/hibernatestatscontrol : 통계 초기화
+ */
+@Component
+@Endpoint(id = "hibernatestatscontrol")
+public class QueryStatisticsControlEndpoint {
+    
+    private final Statistics statistics;
+    
+    public QueryStatisticsControlEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    @WriteOperation
+    public void enable(boolean enabled) {
+        statistics.setStatisticsEnabled(enabled);
+    }
+    
+    @DeleteOperation
+    public void clear() {
+        statistics.clear();
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.repository.stats;
+
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate 통계
+ * GET /actuator/hibernatestats?top=20 : 전체 통계, 누적 시간이 큰 HQL top 개와 호출 위치, 리포지토리 메서드별 합계
+ * 읽기만 한다. 수집 켜고 끄기, 초기화는 웹에 노출하지 않는 {@link QueryStatisticsControlEndpoint} 에 있다.
+ */
+@Component
+@Endpoint(id = "hibernatestats")
+public class QueryStatisticsEndpoint {
+    
+    static final int DEFAULT_TOP = 20;
+    
+    private final Statistics statistics;
+    
+    public QueryStatisticsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    @ReadOperation
+    public QueryStatisticsReport report(@Nullable Integer top) {
+        return QueryStatisticsReport.of(statistics, top == null ? DEFAULT_TOP : top);
+    }
+}
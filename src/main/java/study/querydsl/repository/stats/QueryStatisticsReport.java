@@ -0,0 +1,143 @@
+package study.querydsl.repository.stats;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Getter;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Hibernate 통계 요약 (시간 단위는 ms)
+ * 메서드별 합계는 HQL의 호출 위치 중 가장 바깥 리포지토리 메서드 기준이다.
+ * 같은 HQL을 여러 메서드가 만들면 그 HQL의 통계가 메서드마다 모두 더해진다.
+ */
+@Getter
+public class QueryStatisticsReport {
+    
+    private boolean enabled;
+    private Instant startTime;
+    private long entityLoadCount;
+    private long entityFetchCount;
+    private long collectionLoadCount;
+    private long collectionFetchCount;
+    private long queryExecutionCount;
+    private long queryExecutionMaxTime;
+    private String queryExecutionMaxTimeQuery;
+    private long flushCount;
+    private long prepareStatementCount;
+    private long secondLevelCacheHitCount;
+    private long secondLevelCacheMissCount;
+    private double secondLevelCacheHitRatio;
+    private long queryCacheHitCount;
+    private long queryCacheMissCount;
+    private double queryCacheHitRatio;
+    private final List<QueryReport> queries = new ArrayList<>();
+    private final List<MethodReport> methods = new ArrayList<>();
+    
+    static QueryStatisticsReport of(Statistics statistics, int top) {
+        QueryStatisticsReport report = new QueryStatisticsReport();
+        report.enabled = statistics.isStatisticsEnabled();
+        report.startTime = Instant.ofEpochMilli(statistics.getStartTime());
+        report.entityLoadCount = statistics.getEntityLoadCount();
+        report.entityFetchCount = statistics.getEntityFetchCount();
+        report.collectionLoadCount = statistics.getCollectionLoadCount();
+        report.collectionFetchCount = statistics.getCollectionFetchCount();
+        report.queryExecutionCount = statistics.getQueryExecutionCount();
+        report.queryExecutionMaxTime = statistics.getQueryExecutionMaxTime();
+        report.queryExecutionMaxTimeQuery = statistics.getQueryExecutionMaxTimeQueryString();
+        report.flushCount = statistics.getFlushCount();
+        report.prepareStatementCount = statistics.getPrepareStatementCount();
+        report.secondLevelCacheHitCount = statistics.getSecondLevelCacheHitCount();
+        report.secondLevelCacheMissCount = statistics.getSecondLevelCacheMissCount();
+        report.secondLevelCacheHitRatio = ratio(report.secondLevelCacheHitCount, report.secondLevelCacheMissCount);
+        report.queryCacheHitCount = statistics.getQueryCacheHitCount();
+        report.queryCacheMissCount = statistics.getQueryCacheMissCount();
+        report.queryCacheHitRatio = ratio(report.queryCacheHitCount, report.queryCacheMissCount);
+        
+        List<QueryReport> all = new ArrayList<>();
+        for (String hql : statistics.getQueries()) {
+            QueryStatistics query = statistics.getQueryStatistics(hql);
+            if (query.getExecutionCount() > 0) {
+                all.add(new QueryReport(hql, origins(statistics, hql), query));
+            }
+        }
+        all.sort(Comparator.comparingLong(QueryReport::getTotalTime).reversed());
+        report.queries.addAll(all.subList(0, Math.min(Math.max(top, 0), all.size())));
+        
+        Map<String, MethodReport> methods = new LinkedHashMap<>();
+        for (QueryReport query : all) {
+            query.origins.stream()
+                .map(origin -> origin.split(" > ")[0])
+                .distinct()
+                .forEach(method -> methods.computeIfAbsent(method, MethodReport::new).add(query));
+        }
+        report.methods.addAll(methods.values());
+        report.methods.sort(Comparator.comparingLong(MethodReport::getTotalTime).reversed());
+        return report;
+    }
+    
+    private static Set<String> origins(Statistics statistics, String hql) {
+        if (statistics instanceof QueryOriginStatistics) {
+            Set<String> origins = ((QueryOriginStatistics) statistics).getOrigins(hql);
+            if (!origins.isEmpty()) {
+                return origins;
+            }
+        }
+        return Collections.singleton(QueryOriginStatistics.UNKNOWN);
+    }
+    
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+    
+    @Getter
+    public static class QueryReport {
+        
+        private final String hql;
+        private final List<String> origins;
+        private final long executionCount;
+        private final long rowCount;
+        private final long totalTime;
+        private final double avgTime;
+        private final long maxTime;
+        
+        QueryReport(String hql, Set<String> origins, QueryStatistics statistics) {
+            this.hql = hql;
+            this.origins = new ArrayList<>(origins);
+            Collections.sort(this.origins);
+            this.executionCount = statistics.getExecutionCount();
+            this.rowCount = statistics.getExecutionRowCount();
+            this.totalTime = statistics.getExecutionTotalTime();
+            this.avgTime = statistics.getExecutionAvgTimeAsDouble();
+            this.maxTime = statistics.getExecutionMaxTime();
+        }
+    }
+    
+    @Getter
+    public static class MethodReport {
+        
+        private final String method;
+        private long queries;
+        private long executionCount;
+        private long totalTime;
+        private long maxTime;
+        
+        MethodReport(String method) {
+            this.method = method;
+        }
+        
+        void add(QueryReport query) {
+            queries++;
+            executionCount += query.executionCount;
+            totalTime += query.totalTime;
+            maxTime = Math.max(maxTime, query.maxTime);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.metamodel.EntityType;
+import org.hibernate.Hibernate;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.util.Assert;
+
+/**
+ * 지연 로딩 연관관계를 batchSize 단위 in 쿼리로 미리 초기화한다.
+ * hibernate.default_batch_fetch_size 는 전역 설정이라 쿼리마다 크기를 바꿀 수 없어서 만든 기능이다.
+ *
+ * 1. ManyToOne(member.team): 프록시의 id만 모아서 select t from Team t where t.id in (...)
+ * 2. OneToMany(team.members): select distinct t from Team t left join fetch t.members where t.id in (...)
+ * 조회된 엔티티는 영속성 컨텍스트에 올라가므로 이후 프록시, 컬렉션 접근 시 추가 쿼리가 나가지 않는다.
+ */
+public class AssociationBatchLoader {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+
+    public AssociationBatchLoader(EntityManager em, JPAQueryFactory queryFactory) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+    }
+
+    /**
+     * @param entities     이미 조회한 엔티티 목록
+     * @param batchSize    in 절 하나에 넣을 id 개수
+     * @param associations 초기화할 연관관계 경로. 부모가 entities의 엔티티 경로여야 한다. (예: member.team, team.members)
+     */
+    public void load(List<?> entities, int batchSize, Path<?>... associations) {
+        Assert.isTrue(batchSize > 0, "batchSize must be positive");
+        for (Path<?> association : associations) {
+            Path<?> owner = association.getMetadata().getParent();
+            Assert.notNull(owner, "association must have a parent path: " + association);
+
+            List<Object> owners = new ArrayList<>();
+            for (Object entity : entities) {
+                Object unproxied = Hibernate.unproxy(entity);
+                if (owner.getType().isInstance(unproxied)) {
+                    owners.add(unproxied);
+                }
+            }
+
+            if (association instanceof CollectionExpression) {
+                loadCollections(owners, owner.getType(), association.getMetadata().getName(), batchSize);
+            } else {
+                loadReferences(owners, association.getType(), association.getMetadata().getName(), batchSize);
+            }
+        }
+    }
+
+    private void loadReferences(List<Object> owners, Class<?> targetType, String attribute, int batchSize) {
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        Set<Object> ids = new LinkedHashSet<>();
+        for (Object owner : owners) {
+            Object target = new DirectFieldAccessor(owner).getPropertyValue(attribute);
+            if (target != null && !Hibernate.isInitialized(target)) {
+                ids.add(util.getIdentifier(target));
+            }
+        }
+
+        PathBuilder<?> target = new PathBuilder<>(targetType, "target");
+        String idAttribute = idAttribute(targetType);
+        for (List<Object> chunk : chunks(ids, batchSize)) {
+            queryFactory
+                .selectFrom(target)
+                .where(target.get(idAttribute).in(chunk))
+                .fetch();
+        }
+    }
+
+    private void loadCollections(List<Object> owners, Class<?> ownerType, String attribute, int batchSize) {
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        Set<Object> ids = new LinkedHashSet<>();
+        for (Object owner : owners) {
+            Object collection = new DirectFieldAccessor(owner).getPropertyValue(attribute);
+            if (collection != null && !Hibernate.isInitialized(collection)) {
+                ids.add(util.getIdentifier(owner));
+            }
+        }
+
+        PathBuilder<?> source = new PathBuilder<>(ownerType, "owner");
+        String idAttribute = idAttribute(ownerType);
+        for (List<Object> chunk : chunks(ids, batchSize)) {
+            queryFactory
+                .selectFrom(source).distinct()
+                .leftJoin(source.getCollection(attribute, Object.class)).fetchJoin()
+                .where(source.get(idAttribute).in(chunk))
+                .fetch();
+        }
+    }
+
+    private String idAttribute(Class<?> entityType) {
+        EntityType<?> entity = em.getMetamodel().entity(entityType);
+        return entity.getId(entity.getIdType().getJavaType()).getName();
+    }
+
+    private static List<List<Object>> chunks(Set<Object> ids, int batchSize) {
+        List<List<Object>> chunks = new ArrayList<>();
+        List<Object> chunk = new ArrayList<>(batchSize);
+        for (Object id : ids) {
+            chunk.add(id);
+            if (chunk.size() == batchSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
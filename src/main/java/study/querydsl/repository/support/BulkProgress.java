@@ -0,0 +1,71 @@
+package study.querydsl.repository.support;
+
+import java.time.Duration;
+import java.time.Instant;
+import lombok.Getter;
+
+/**
+ * 분할 벌크 작업 진행 상황
+ * 작업 스레드가 갱신하고 다른 스레드(모니터링)가 읽을 수 있도록 필드는 volatile 이다.
+ */
+@Getter
+public class BulkProgress {
+    
+    public enum Status {
+        RUNNING, COMPLETED, INTERRUPTED, FAILED
+    }
+    
+    private final String jobName;
+    /** 이번 실행이 시작한 위치. 재시작이면 이전 실행이 마지막으로 커밋한 id */
+    private final long resumedAfterId;
+    private final Instant startedAt = Instant.now();
+    
+    private volatile Status status = Status.RUNNING;
+    private volatile long lastId;
+    private volatile long chunks;
+    /** 이번 실행에서 변경한 행 수 */
+    private volatile long affectedRows;
+    /** 이전 실행까지 포함한 전체 변경 행 수 */
+    private volatile long totalAffectedRows;
+    private volatile Instant finishedAt;
+    
+    public BulkProgress(String jobName, long resumedAfterId, long previousAffectedRows) {
+        this.jobName = jobName;
+        this.resumedAfterId = resumedAfterId;
+        this.lastId = resumedAfterId;
+        this.totalAffectedRows = previousAffectedRows;
+    }
+    
+    public Duration getElapsed() {
+        Instant end = finishedAt == null ? Instant.now() : finishedAt;
+        return Duration.between(startedAt, end);
+    }
+    
+    public double getRowsPerSecond() {
+        long millis = getElapsed().toMillis();
+        return millis == 0 ? 0 : affectedRows * 1000.0 / millis;
+    }
+    
+    void chunkCommitted(long lastId, long affectedRows) {
+        this.lastId = lastId;
+        this.chunks++;
+        this.affectedRows += affectedRows;
+        this.totalAffectedRows += affectedRows;
+    }
+    
+    void finish(Status status) {
+        this.status = status;
+        this.finishedAt = Instant.now();
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkProgress{" + jobName + " " + status
+            + ", lastId=" + lastId
+            + ", chunks=" + chunks
+            + ", affectedRows=" + affectedRows
+            + ", totalAffectedRows=" + totalAffectedRows
+            + ", rowsPerSecond=" + String.format("%.1f", getRowsPerSecond())
+            + "}";
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.dml.DMLClause;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.listener.BulkChangeEvent;
+
+/**
+ * 벌크 연산 실행기
+ * queryFactory.update(), delete()를 직접 execute()하면 엔티티 리스너가 동작하지 않아
+ * 메모리 인덱스나 캐시가 변경 사실을 알 수 없다. 벌크 연산은 이 클래스를 통해 실행한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkQueryExecutor {
+    
+    private final ApplicationEventPublisher publisher;
+    
+    public long execute(Class<?> entityType, DMLClause<?> clause) {
+        long affectedRows = clause.execute();
+        publisher.publishEvent(new BulkChangeEvent(entityType, affectedRows));
+        return affectedRows;
+    }
+    
+    /**
+     * clause가 바꾸는 행의 id가 [minId, maxId] 안에 있을 때. 구간만 다시 읽으면 되는 구독자가 있다. (MemberSearchTable)
+     */
+    public long execute(Class<?> entityType, DMLClause<?> clause, long minId, long maxId) {
+        long affectedRows = clause.execute();
+        publisher.publishEvent(new BulkChangeEvent(entityType, affectedRows, minId, maxId));
+        return affectedRows;
+    }
+    
+    /**
+     * JdbcTemplate 등 JPA를 거치지 않고 직접 쓴 경우 변경 사실만 알린다.
+     */
+    public void changed(Class<?> entityType, long affectedRows) {
+        publisher.publishEvent(new BulkChangeEvent(entityType, affectedRows));
+    }
+    
+    public void changed(Class<?> entityType, long affectedRows, long minId, long maxId) {
+        publisher.publishEvent(new BulkChangeEvent(entityType, affectedRows, minId, maxId));
+    }
+    
+    /**
+     * 변경 내용을 더 자세히 알리는 이벤트 (예: MemberAgeDeltaEvent)
+     */
+    public void changed(BulkChangeEvent event) {
+        publisher.publishEvent(event);
+    }
+}
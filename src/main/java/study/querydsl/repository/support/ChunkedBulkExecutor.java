@@ -0,0 +1,178 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.dml.DMLClause;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.querydsl.entity.BulkJobCheckpoint;
+
+/**
+ * 큰 벌크 update/delete를 PK 구간(chunk) 단위로 나눠 실행한다.
+ * 한 번의 벌크 연산은 테이블 전체에 락과 undo를 잡고 있으므로 구간마다 별도 트랜잭션으로 커밋한다.
+ *
+ * <pre>
+ * chunkedBulkExecutor.execute("delete-old-members", member, member.id,
+ *     range -> queryFactory.delete(member).where(member.age.gt(100), range),
+ *     ChunkedBulkOptions.defaults().chunkSize(5_000).maxRowsPerSecond(20_000));
+ * </pre>
+ *
+ * 1. 구간 경계는 id > lastId 인 id를 chunkSize 개 건너뛴 값이다. (조건과 상관없이 구간마다 최대 chunkSize 행만 본다)
+ * 2. 구간 하나의 DML과 체크포인트 갱신이 같은 트랜잭션에서 커밋된다. 실패, 중단되면 같은 jobName으로 다시 실행해 이어서 처리한다.
+ * 3. 청크 트랜잭션 타임아웃(chunkTimeout)이 쿼리 타임아웃으로도 적용되어 락을 잡고 있는 시간을 제한한다.
+ * 4. 스레드가 인터럽트되면 현재 청크를 마친 뒤 INTERRUPTED 상태로 멈춘다.
+ * 구간 사이에 다른 트랜잭션이 끼어들 수 있으므로 작업 전체가 원자적이지는 않다.
+ */
+@Slf4j
+@Component
+public class ChunkedBulkExecutor {
+    
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+    private final BulkQueryExecutor bulkQueryExecutor;
+    private final PlatformTransactionManager transactionManager;
+    private final Map<String, BulkProgress> running = new ConcurrentHashMap<>();
+    
+    public ChunkedBulkExecutor(JPAQueryFactory queryFactory, EntityManager em,
+        BulkQueryExecutor bulkQueryExecutor, PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.bulkQueryExecutor = bulkQueryExecutor;
+        this.transactionManager = transactionManager;
+    }
+    
+    /**
+     * @param jobName 체크포인트 키. 완료되지 않은 같은 이름의 작업이 있으면 이어서 실행하고, 완료된 작업이면 처음부터 다시 실행한다.
+     * @param entity  대상 엔티티
+     * @param id      구간을 나눌 Long PK 경로
+     * @param clause  구간 조건을 받아 실행할 update/delete를 만든다. 구간 조건을 where에 반드시 넣어야 한다.
+     */
+    public BulkProgress execute(String jobName, EntityPath<?> entity, NumberPath<Long> id,
+        Function<Predicate, DMLClause<?>> clause, ChunkedBulkOptions options) {
+        Assert.isTrue(options.getChunkSize() > 0, "chunkSize must be positive");
+        TransactionTemplate chunkTransaction = chunkTransaction(options);
+        
+        BulkJobCheckpoint checkpoint = chunkTransaction.execute(status -> start(jobName));
+        BulkProgress progress = new BulkProgress(jobName, checkpoint.getLastId(), checkpoint.getAffectedRows());
+        if (running.putIfAbsent(jobName, progress) != null) {
+            throw new IllegalStateException("bulk job already running: " + jobName);
+        }
+        
+        try {
+            while (true) {
+                if (Thread.currentThread().isInterrupted()) {
+                    progress.finish(BulkProgress.Status.INTERRUPTED);
+                    break;
+                }
+                long from = progress.getLastId();
+                long[] committed = chunkTransaction.execute(status -> {
+                    Long to = upperBound(entity, id, from, options.getChunkSize());
+                    BulkJobCheckpoint current = em.find(BulkJobCheckpoint.class, jobName);
+                    if (to == null) {
+                        current.complete();
+                        return null;
+                    }
+                    long affected = bulkQueryExecutor.execute(entity.getType(),
+                        clause.apply(id.gt(from).and(id.loe(to))), from + 1, to);
+                    current.advance(to, affected);
+                    return new long[]{to, affected};
+                });
+                if (committed == null) {
+                    progress.finish(BulkProgress.Status.COMPLETED);
+                    break;
+                }
+                progress.chunkCommitted(committed[0], committed[1]);
+                options.getOnProgress().accept(progress);
+                throttle(progress, options.getMaxRowsPerSecond());
+            }
+        } catch (RuntimeException e) {
+            progress.finish(BulkProgress.Status.FAILED);
+            throw e;
+        } finally {
+            running.remove(jobName);
+            log.info("{}", progress);
+        }
+        return progress;
+    }
+    
+    /**
+     * 실행 중인 작업의 진행 상황 (다른 스레드에서 모니터링 용도로 조회)
+     */
+    public Optional<BulkProgress> progress(String jobName) {
+        return Optional.ofNullable(running.get(jobName));
+    }
+    
+    private TransactionTemplate chunkTransaction(ChunkedBulkOptions options) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (options.getChunkTimeout() != null) {
+            template.setTimeout((int) Math.max(1, options.getChunkTimeout().getSeconds()));
+        }
+        return template;
+    }
+    
+    private BulkJobCheckpoint start(String jobName) {
+        BulkJobCheckpoint checkpoint = em.find(BulkJobCheckpoint.class, jobName);
+        if (checkpoint == null) {
+            checkpoint = new BulkJobCheckpoint(jobName);
+            em.persist(checkpoint);
+        } else if (checkpoint.isCompleted()) {
+            checkpoint.restart();
+        } else {
+            log.info("resume bulk job {} after id {}", jobName, checkpoint.getLastId());
+        }
+        return checkpoint;
+    }
+    
+    /**
+     * from 다음 chunkSize 번째 id. 남은 행이 chunkSize 보다 적으면 마지막 id, 남은 행이 없으면 null
+     */
+    private Long upperBound(EntityPath<?> entity, NumberPath<Long> id, long from, int chunkSize) {
+        Long to = queryFactory
+            .select(id)
+            .from(entity)
+            .where(id.gt(from))
+            .orderBy(id.asc())
+            .offset(chunkSize - 1)
+            .limit(1)
+            .fetchOne();
+        if (to != null) {
+            return to;
+        }
+        return queryFactory
+            .select(id.max())
+            .from(entity)
+            .where(id.gt(from))
+            .fetchOne();
+    }
+    
+    /**
+     * 이번 실행에서 처리한 행 수가 maxRowsPerSecond를 넘지 않도록 청크 사이에 쉰다.
+     */
+    private void throttle(BulkProgress progress, long maxRowsPerSecond) {
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long expectedMillis = progress.getAffectedRows() * 1000 / maxRowsPerSecond;
+        long sleepMillis = expectedMillis - progress.getElapsed().toMillis();
+        if (sleepMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.repository.support;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import lombok.Getter;
+
+/**
+ * ChunkedBulkExecutor 실행 옵션 (불변)
+ * <pre>
+ * ChunkedBulkOptions.defaults()
+ *     .chunkSize(5_000)                    // 청크 하나가 다루는 PK 개수
+ *     .maxRowsPerSecond(20_000)            // 0이면 제한 없음
+ *     .chunkTimeout(Duration.ofSeconds(5)) // 청크 트랜잭션 타임아웃 = 락을 잡고 있는 최대 시간
+ *     .onProgress(progress -> log.info("{}", progress))
+ * </pre>
+ */
+@Getter
+public class ChunkedBulkOptions {
+    
+    private static final ChunkedBulkOptions DEFAULTS =
+        new ChunkedBulkOptions(1000, 0, Duration.ofSeconds(30), progress -> { });
+    
+    private final int chunkSize;
+    private final long maxRowsPerSecond;
+    private final Duration chunkTimeout;
+    private final Consumer<BulkProgress> onProgress;
+    
+    private ChunkedBulkOptions(int chunkSize, long maxRowsPerSecond, Duration chunkTimeout,
+        Consumer<BulkProgress> onProgress) {
+        this.chunkSize = chunkSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.chunkTimeout = chunkTimeout;
+        this.onProgress = onProgress;
+    }
+    
+    public static ChunkedBulkOptions defaults() {
+        return DEFAULTS;
+    }
+    
+    public ChunkedBulkOptions chunkSize(int chunkSize) {
+        return new ChunkedBulkOptions(chunkSize, maxRowsPerSecond, chunkTimeout, onProgress);
+    }
+    
+    public ChunkedBulkOptions maxRowsPerSecond(long maxRowsPerSecond) {
+        return new ChunkedBulkOptions(chunkSize, maxRowsPerSecond, chunkTimeout, onProgress);
+    }
+    
+    public ChunkedBulkOptions chunkTimeout(Duration chunkTimeout) {
+        return new ChunkedBulkOptions(chunkSize, maxRowsPerSecond, chunkTimeout, onProgress);
+    }
+    
+    /**
+     * 청크가 커밋될 때마다 호출된다. 작업 스레드에서 호출되므로 오래 걸리는 일을 하면 안 된다.
+     */
+    public ChunkedBulkOptions onProgress(Consumer<BulkProgress> onProgress) {
+        return new ChunkedBulkOptions(chunkSize, maxRowsPerSecond, chunkTimeout, onProgress);
+    }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.AbstractJPAQuery;
+import java.time.Duration;
+import javax.persistence.FlushModeType;
+import lombok.Getter;
+import org.hibernate.jpa.QueryHints;
+
+/**
+ * JPAQuery에 적용할 쿼리 힌트 묶음
+ * 불변 객체이고 메서드마다 새 객체를 반환하므로 리포지토리 기본값을 공유해도 안전하다.
+ *
+ * <pre>
+ * JpaQueryHints.defaults()
+ *     .fetchSize(500)
+ *     .timeout(Duration.ofSeconds(3))
+ *     .flushMode(FlushModeType.COMMIT)
+ *     .readOnly()
+ *     .cacheable("member-search")
+ *     .comment("MemberTestRepository.searchPageByApplyPage")
+ * </pre>
+ * 지정하지 않은 값은 하이버네이트 기본값을 따른다.
+ */
+@Getter
+public class JpaQueryHints {
+
+    private static final JpaQueryHints DEFAULTS = new JpaQueryHints(null, null, null, false, false, null, null);
+
+    private final Integer fetchSize;
+    private final Duration timeout;
+    private final FlushModeType flushMode;
+    private final boolean readOnly;
+    private final boolean cacheable;
+    private final String cacheRegion;
+    private final String comment;
+
+    private JpaQueryHints(Integer fetchSize, Duration timeout, FlushModeType flushMode, boolean readOnly,
+        boolean cacheable, String cacheRegion, String comment) {
+        this.fetchSize = fetchSize;
+        this.timeout = timeout;
+        this.flushMode = flushMode;
+        this.readOnly = readOnly;
+        this.cacheable = cacheable;
+        this.cacheRegion = cacheRegion;
+        this.comment = comment;
+    }
+
+    public static JpaQueryHints defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * JDBC fetch size. 큰 결과를 스캔할 때 드라이버가 한 번에 가져오는 행 수
+     */
+    public JpaQueryHints fetchSize(int fetchSize) {
+        return new JpaQueryHints(fetchSize, timeout, flushMode, readOnly, cacheable, cacheRegion, comment);
+    }
+
+    /**
+     * 쿼리 타임아웃. 초과하면 QueryTimeoutException
+     */
+    public JpaQueryHints timeout(Duration timeout) {
+        return new JpaQueryHints(fetchSize, timeout, flushMode, readOnly, cacheable, cacheRegion, comment);
+    }
+
+    /**
+     * COMMIT이면 쿼리 전에 자동 flush를 하지 않는다. 같은 트랜잭션에서 flush 전 변경은 조회 결과에 보이지 않는다.
+     */
+    public JpaQueryHints flushMode(FlushModeType flushMode) {
+        return new JpaQueryHints(fetchSize, timeout, flushMode, readOnly, cacheable, cacheRegion, comment);
+    }
+
+    /**
+     * 조회한 엔티티를 읽기 전용으로 관리한다. 스냅샷을 만들지 않고 dirty checking 대상에서 빠진다.
+     */
+    public JpaQueryHints readOnly() {
+        return new JpaQueryHints(fetchSize, timeout, flushMode, true, cacheable, cacheRegion, comment);
+    }
+
+    /**
+     * 쿼리 캐시 사용. hibernate.cache.use_query_cache 설정이 켜져 있어야 동작한다.
+     */
+    public JpaQueryHints cacheable(String cacheRegion) {
+        return new JpaQueryHints(fetchSize, timeout, flushMode, readOnly, true, cacheRegion, comment);
+    }
+
+    /**
+     * SQL 주석 (use_sql_comments: true 일 때 SQL 로그와 DB에서 확인할 수 있다)
+     */
+    public JpaQueryHints comment(String comment) {
+        return new JpaQueryHints(fetchSize, timeout, flushMode, readOnly, cacheable, cacheRegion, comment);
+    }
+
+    public <Q extends AbstractJPAQuery<?, ?>> Q applyTo(Q query) {
+        if (fetchSize != null) {
+            query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize);
+        }
+        if (timeout != null) {
+            query.setHint(QueryHints.SPEC_HINT_TIMEOUT, (int) timeout.toMillis());
+        }
+        if (flushMode != null) {
+            query.setFlushMode(flushMode);
+        }
+        if (readOnly) {
+            query.setHint(QueryHints.HINT_READONLY, true);
+        }
+        if (cacheable) {
+            query.setHint(QueryHints.HINT_CACHEABLE, true);
+            if (cacheRegion != null) {
+                query.setHint(QueryHints.HINT_CACHE_REGION, cacheRegion);
+            }
+        }
+        if (comment != null) {
+            query.setHint(QueryHints.HINT_COMMENT, comment);
+        }
+        return query;
+    }
+}
@@ -2,6 +2,7 @@ package study.querydsl.repository.support;
 
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
@@ -19,6 +20,7 @@ import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
+import study.querydsl.jfr.RepositoryQueryEvent;
 
 /**
  * Querydsl 4.x 버전에 맞춘 Querydsl 지원 라이브러리
@@ -33,6 +35,7 @@ public abstract class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private AssociationBatchLoader associationBatchLoader;
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
         this.domainClass = domainClass;
@@ -48,6 +51,7 @@ public abstract class Querydsl4RepositorySupport {
         this.querydsl = new Querydsl(entityManager, new
             PathBuilder<>(path.getType(), path.getMetadata()));
         this.queryFactory = new JPAQueryFactory(entityManager);
+        this.associationBatchLoader = new AssociationBatchLoader(entityManager, queryFactory);
     }
     @PostConstruct
     public void validate() {
@@ -64,28 +68,85 @@ public abstract class Querydsl4RepositorySupport {
     protected EntityManager getEntityManager() {
         return entityManager;
     }
+    /**
+     * select, selectFrom, applyPagination으로 만든 쿼리에 적용할 기본 힌트
+     * 리포지토리마다 다른 기본값이 필요하면 오버라이드한다.
+     */
+    protected JpaQueryHints defaultHints() {
+        return JpaQueryHints.defaults();
+    }
+    /**
+     * 조회 전용 힌트 (기본 힌트 + readOnly)
+     * 조회한 엔티티는 하이버네이트가 스냅샷을 보관하지 않고 flush 시 dirty checking 대상에서도 빠진다.
+     * 반환된 엔티티를 수정해도 DB에 반영되지 않으므로 수정할 엔티티는 일반 조회로 가져와야 한다.
+     */
+    protected JpaQueryHints readOnlyHints() {
+        return defaultHints().readOnly();
+    }
     protected <T> JPAQuery<T> select(Expression<T> expr) {
-        return getQueryFactory().select(expr);
+        return defaultHints().applyTo(getQueryFactory().select(expr));
     }
     protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
-        return getQueryFactory().selectFrom(from);
+        return defaultHints().applyTo(getQueryFactory().selectFrom(from));
+    }
+    protected <T> JPAQuery<T> select(Expression<T> expr, JpaQueryHints hints) {
+        return hints.applyTo(getQueryFactory().select(expr));
+    }
+    protected <T> JPAQuery<T> selectFrom(EntityPath<T> from, JpaQueryHints hints) {
+        return hints.applyTo(getQueryFactory().selectFrom(from));
+    }
+    /**
+     * 조회 후 associations를 batchSize 단위로 미리 초기화한다.
+     * 전역 설정(hibernate.default_batch_fetch_size) 대신 쿼리마다 배치 크기를 정할 때 사용한다.
+     */
+    protected <T> List<T> fetchWithBatch(JPAQuery<T> query, int batchSize, Path<?>... associations) {
+        List<T> result = query.fetch();
+        associationBatchLoader.load(result, batchSize, associations);
+        return result;
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
         Function<JPAQueryFactory, JPAQuery> contentQuery) {
-        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-            jpaQuery).fetch();
-        return PageableExecutionUtils.getPage(content, pageable,
-            jpaQuery::fetchCount);
+        return applyPagination(pageable, defaultHints(), contentQuery);
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
         Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
                 JPAQuery> countQuery) {
-        JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-            jpaContentQuery).fetch();
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
-        return PageableExecutionUtils.getPage(content, pageable,
-            countResult::fetchCount);
+        return applyPagination(pageable, defaultHints(), contentQuery, countQuery);
+    }
+    /**
+     * hints는 content 쿼리와 count 쿼리에 모두 적용된다.
+     * 실행마다 JFR 이벤트(RepositoryQueryEvent)를 남긴다. 조건 모양은 content 쿼리의 where 절 기준이다.
+     */
+    protected <T> Page<T> applyPagination(Pageable pageable, JpaQueryHints hints,
+        Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        RepositoryQueryEvent event = RepositoryQueryEvent.start(getClass(), "applyPagination", pageable);
+        JPAQuery jpaQuery = hints.applyTo(contentQuery.apply(getQueryFactory()));
+        Page<T> page = null;
+        try {
+            List<T> content = getQuerydsl().applyPagination(pageable,
+                jpaQuery).fetch();
+            page = PageableExecutionUtils.getPage(content, pageable,
+                event.counted(jpaQuery::fetchCount));
+            return page;
+        } finally {
+            event.finish(page, () -> RepositoryQueryEvent.shapeOf(jpaQuery.getMetadata().getWhere()));
+        }
+    }
+    protected <T> Page<T> applyPagination(Pageable pageable, JpaQueryHints hints,
+        Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
+                JPAQuery> countQuery) {
+        RepositoryQueryEvent event = RepositoryQueryEvent.start(getClass(), "applyPagination", pageable);
+        JPAQuery jpaContentQuery = hints.applyTo(contentQuery.apply(getQueryFactory()));
+        Page<T> page = null;
+        try {
+            List<T> content = getQuerydsl().applyPagination(pageable,
+                jpaContentQuery).fetch();
+            JPAQuery countResult = hints.applyTo(countQuery.apply(getQueryFactory()));
+            page = PageableExecutionUtils.getPage(content, pageable,
+                event.counted(countResult::fetchCount));
+            return page;
+        } finally {
+            event.finish(page, () -> RepositoryQueryEvent.shapeOf(jpaContentQuery.getMetadata().getWhere()));
+        }
     }
 }
\ No newline at end of file
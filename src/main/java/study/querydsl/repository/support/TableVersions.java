@@ -0,0 +1,92 @@
+package study.querydsl.repository.support;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.Hibernate;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.listener.BulkChangeEvent;
+import study.querydsl.entity.listener.EntityChangeEvent;
+
+/**
+ * 엔티티(테이블)별 버전 카운터
+ * 엔티티 변경, 벌크 연산이 일어날 때마다 증가한다. 조회 결과가 바뀌었는지 판단하는 ETag 등에 사용한다.
+ *
+ * 변경 시점(flush)과 트랜잭션 종료 시점에 모두 증가시킨다.
+ * flush 이후 커밋 전에 다른 요청이 읽은 버전은 커밋 이후 다시 증가하므로 재사용되지 않는다.
+ * 버전은 메모리에만 있고 재시작하면 0부터 다시 센다. 그래서 이 애플리케이션 인스턴스, 이번 기동 안에서만 유효하고
+ * 버전을 밖으로 내보낼 때(ETag)는 기동마다 새로 만드는 epoch 을 같이 넣어야 재시작 전이나 다른 인스턴스의 값과 겹치지 않는다.
+ */
+@Component
+public class TableVersions {
+    
+    private final String epoch = UUID.randomUUID().toString();
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+    
+    /**
+     * 기동(인스턴스)마다 다른 값
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+    
+    public long get(Class<?> entityType) {
+        return counter(entityType).get();
+    }
+    
+    /**
+     * DB 변경 없이 조회 결과만 바뀔 때 (예: MemberAgeWriteBehind 에 쌓인 증감값)
+     * 트랜잭션과 상관없이 바로 보이는 변경이므로 지금 한 번만 증가시킨다.
+     */
+    public void touch(Class<?> entityType) {
+        counter(entityType).incrementAndGet();
+    }
+    
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        increment(Hibernate.getClass(event.getEntity()));
+    }
+    
+    @EventListener
+    public void onBulkChange(BulkChangeEvent event) {
+        increment(event.getEntityType());
+    }
+    
+    private void increment(Class<?> entityType) {
+        counter(entityType).incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            changedInTransaction().add(entityType);
+        }
+    }
+    
+    /**
+     * 트랜잭션마다 변경된 엔티티 타입을 모아 두었다가 종료 시점에 한 번씩만 증가시킨다.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<Class<?>> changedInTransaction() {
+        Set<Class<?>> changed = (Set<Class<?>>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Set<Class<?>> types = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, types);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TableVersions.this);
+                    types.forEach(type -> counter(type).incrementAndGet());
+                }
+            });
+            changed = types;
+        }
+        return changed;
+    }
+    
+    private AtomicLong counter(Class<?> entityType) {
+        return versions.computeIfAbsent(entityType, type -> new AtomicLong());
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.repository.support;
+
+import java.util.Map;
+import javax.persistence.EntityManager;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 현재 트랜잭션의 영속성 컨텍스트에 아직 flush 되지 않은 대상 엔티티 변경(저장, 수정, 삭제)이 있는지
+ * flush 된 변경은 EntityChangeEvent 로 알 수 있지만 그 전의 변경은 영속성 컨텍스트에만 있다.
+ * Session.isDirty()는 flush 처럼 모든 엔티티를 dirty checking 하므로 대상 타입의 엔티티만 비교한다.
+ */
+public final class UnflushedChanges {
+    
+    private UnflushedChanges() {
+    }
+    
+    public static boolean exist(EntityManager em, Class<?>... entityTypes) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        PersistenceContext context = session.getPersistenceContextInternal();
+        if (context.getNumberOfManagedEntities() == 0) {
+            return false;
+        }
+        for (Map.Entry<Object, EntityEntry> managed : context.reentrantSafeEntityEntries()) {
+            EntityEntry entry = managed.getValue();
+            if (isTarget(entry.getPersister().getMappedClass(), entityTypes)
+                && changed(managed.getKey(), entry, session)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isTarget(Class<?> mappedClass, Class<?>[] entityTypes) {
+        for (Class<?> entityType : entityTypes) {
+            if (entityType.isAssignableFrom(mappedClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * persist 후 insert 전이면 existsInDatabase 가 false, remove 후 delete 전이면 DELETED 다.
+     * 읽기 전용 엔티티(READ_ONLY)는 바뀌어도 반영되지 않으므로 보지 않는다.
+     */
+    private static boolean changed(Object entity, EntityEntry entry, SessionImplementor session) {
+        if (entry.getStatus() == Status.DELETED || !entry.isExistsInDatabase()) {
+            return true;
+        }
+        if (entry.getStatus() != Status.MANAGED || entry.getLoadedState() == null) {
+            return false;
+        }
+        EntityPersister persister = entry.getPersister();
+        return persister.findDirty(persister.getPropertyValues(entity), entry.getLoadedState(), entity, session) != null;
+    }
+}
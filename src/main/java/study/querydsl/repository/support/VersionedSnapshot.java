@@ -0,0 +1,200 @@
+package study.querydsl.repository.support;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import javax.persistence.EntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 엔티티 변경 이벤트로 무효화되는 메모리 스냅샷 (TeamDictionary, MemberAgeAggregates, MemberHotTier)
+ *
+ * 1. 대상 엔티티가 바뀌면(flush, 커밋/롤백 시점) 버전을 올린다. 버전이 다른 스냅샷은 다시 읽어야 한다.
+ * 2. 다시 읽기는 별도의 읽기 전용 트랜잭션(REQUIRES_NEW)에서 한다. 읽는 도중 변경이 생기면 버전이 맞지 않아 다음 조회 때 다시 읽는다.
+ * 3. 현재 트랜잭션에서 대상을 변경했으면 스냅샷은 그 변경을 모르므로 쓰지 않는다. ({@link #changedInCurrentTransaction()})
+ *    flush 된 변경은 changed()가 남긴 트랜잭션 리소스로, flush 전 변경은 영속성 컨텍스트의 대상 타입 엔티티만 비교해서 안다.
+ * 4. 다시 읽기는 한 번에 한 스레드만 한다. 다른 스레드는 current()면 그 결과를 기다리고, latest()면 이전 스냅샷을 바로 쓴다.
+ */
+public class VersionedSnapshot<T> {
+    
+    private final EntityManager em;
+    private final TransactionTemplate loadTransaction;
+    private final Supplier<T> loader;
+    private final Class<?>[] entityTypes;
+    
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile Loaded<T> loaded;
+    
+    public VersionedSnapshot(EntityManager em, PlatformTransactionManager transactionManager, Supplier<T> loader,
+        Class<?>... entityTypes) {
+        this.em = em;
+        this.loader = loader;
+        this.entityTypes = entityTypes;
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTransaction.setReadOnly(true);
+    }
+    
+    /**
+     * 최신 스냅샷. 버전이 바뀌었으면 지금 다시 읽는다. 현재 트랜잭션에서 대상을 변경했으면 빈 Optional
+     */
+    public Optional<T> current() {
+        if (changedInCurrentTransaction()) {
+            return Optional.empty();
+        }
+        Loaded<T> current = loaded;
+        if (current != null && current.version == version.get()) {
+            return Optional.of(current.value);
+        }
+        loadLock.lock();
+        try {
+            return Optional.of(loadIfStale().value);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+    
+    /**
+     * current()와 같지만 다른 스레드가 다시 읽는 중이면 기다리지 않고 이전 스냅샷을 반환한다.
+     * 조금 오래된 값이어도 되는 곳에서 쓴다. (동시 요청이 모두 같은 전체 집계를 실행하지 않게)
+     */
+    public Optional<T> latest() {
+        if (changedInCurrentTransaction()) {
+            return Optional.empty();
+        }
+        Loaded<T> current = loaded;
+        if (current == null || current.version == version.get()) {
+            return current == null ? current() : Optional.of(current.value);
+        }
+        if (!loadLock.tryLock()) {
+            return Optional.of(current.value);
+        }
+        try {
+            return Optional.of(loadIfStale().value);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+    
+    /**
+     * 다시 읽지 않고 마지막으로 읽은 스냅샷이 최신일 때만 반환한다. (다시 읽기를 백그라운드에서 하는 경우)
+     */
+    public Optional<T> ifFresh() {
+        Loaded<T> current = loaded;
+        if (current == null || current.version != version.get()) {
+            return Optional.empty();
+        }
+        return Optional.of(current.value);
+    }
+    
+    /**
+     * 변경 내용을 정확히 알 때 다시 읽지 않고 스냅샷을 고친다. 트랜잭션 안이면 커밋된 뒤에 고친다.
+     * 커밋 직전부터 고칠 때까지 다시 읽기를 막아서, 커밋된 값을 읽은 스냅샷에 변경을 한 번 더 더하지 않게 한다.
+     * 스냅샷이 이미 오래됐으면 어차피 다시 읽으므로 그대로 둔다.
+     */
+    public void updateOnCommit(UnaryOperator<T> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            loadLock.lock();
+            try {
+                apply(change);
+            } finally {
+                loadLock.unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                loadLock.lock();
+            }
+            
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                if (loadLock.isHeldByCurrentThread()) {
+                    loadLock.unlock();
+                }
+            }
+        });
+    }
+    
+    public void reload() {
+        loadLock.lock();
+        try {
+            load(version.get());
+        } finally {
+            loadLock.unlock();
+        }
+    }
+    
+    /**
+     * 대상 엔티티의 변경 이벤트(EntityChangeEvent, BulkChangeEvent)를 받았을 때 호출한다.
+     * 트랜잭션 안이면 종료 시점에 한 번 더 올려서, 커밋/롤백 전에 다른 스레드가 읽은 스냅샷도 버린다.
+     */
+    public void changed() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+            && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(VersionedSnapshot.this);
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+    
+    /**
+     * 현재 트랜잭션에서 대상을 변경했거나 아직 flush 되지 않은 변경이 있는지
+     */
+    public boolean changedInCurrentTransaction() {
+        return TransactionSynchronizationManager.hasResource(this)
+            || UnflushedChanges.exist(em, entityTypes);
+    }
+    
+    private void apply(UnaryOperator<T> change) {
+        Loaded<T> current = loaded;
+        if (current != null && current.version == version.get()) {
+            loaded = new Loaded<>(current.version, change.apply(current.value));
+        }
+    }
+    
+    private Loaded<T> loadIfStale() {
+        Loaded<T> current = loaded;
+        long currentVersion = version.get();
+        if (current == null || current.version != currentVersion) {
+            current = load(currentVersion);
+        }
+        return current;
+    }
+    
+    private Loaded<T> load(long loadingVersion) {
+        Loaded<T> current = new Loaded<>(loadingVersion, loadTransaction.execute(status -> loader.get()));
+        loaded = current;
+        return current;
+    }
+    
+    private static class Loaded<T> {
+        
+        private final long version;
+        private final T value;
+        
+        Loaded(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package study.querydsl.repository.transfer;
+
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkQueryExecutor;
+
+/**
+ * 회원 팀 일괄 이동
+ * Member.changeTeam()은 team.getMembers()를 초기화하므로 많은 회원을 옮기면 엔티티와 컬렉션이 모두 메모리에 올라온다.
+ *
+ * 1. 옮길 회원 id만 조회한다. (이미 대상 팀에 있는 회원은 뺀다)
+ * 2. id를 chunk-size 개씩 나눠 update member set team_id = ? where member_id in (...) 를 실행한다. (BulkQueryExecutor)
+ * 3. 끝나면 영속성 컨텍스트에 올라와 있는 옮긴 회원과, 초기화된 Team.members 컬렉션이 있는 관련 팀을 refresh 한다.
+ * 4. 2차 캐시의 Member 엔티티와 관련 팀의 Team.members 컬렉션을 비운다. (2차 캐시를 쓰지 않으면 아무 일도 하지 않는다)
+ * 전체가 호출한 트랜잭션 하나에서 실행된다. 청크는 in 목록 크기와 문장 하나가 락을 잡는 행 수를 제한하기 위한 것이다.
+ * 커밋을 나눠야 할 만큼 크면 ChunkedBulkExecutor를 쓴다.
+ */
+@Component
+public class MemberTeamTransfer {
+    
+    private static final String TEAM_MEMBERS = Team.class.getName() + ".members";
+    
+    private final int chunkSize;
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final BulkQueryExecutor bulkQueryExecutor;
+    
+    public MemberTeamTransfer(@Value("${member.transfer.chunk-size:1000}") int chunkSize, EntityManager em,
+        JPAQueryFactory queryFactory, BulkQueryExecutor bulkQueryExecutor) {
+        Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+        this.chunkSize = chunkSize;
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.bulkQueryExecutor = bulkQueryExecutor;
+    }
+    
+    /**
+     * where 에 맞는 회원을 teamId 팀으로 옮긴다. where 는 id 조회(select)에만 쓰이므로 member.team.name 같은 경로도 쓸 수 있다.
+     */
+    @Transactional
+    public MemberTransferResult transfer(Predicate where, Long teamId) {
+        Team target = targetTeam(teamId);
+        List<Long> memberIds = queryFactory
+            .select(member.id)
+            .from(member)
+            .where(where, member.team.id.ne(teamId).or(member.team.isNull()))
+            .orderBy(member.id.asc())
+            .fetch();
+        return move(memberIds, target);
+    }
+    
+    /**
+     * memberIds 회원을 teamId 팀으로 옮긴다. 없는 id와 이미 그 팀에 있는 회원은 옮긴 수에 들어가지 않는다.
+     * @throws IllegalArgumentException memberIds 가 null 이거나 null 원소가 있을 때
+     * @throws EntityNotFoundException teamId 팀이 없을 때
+     */
+    @Transactional
+    public MemberTransferResult transfer(Collection<Long> memberIds, Long teamId) {
+        Assert.notNull(memberIds, "memberIds must not be null");
+        Assert.noNullElements(memberIds, "memberIds must not contain null");
+        Team target = targetTeam(teamId);
+        return move(new ArrayList<>(new TreeSet<>(memberIds)), target);
+    }
+    
+    private Team targetTeam(Long teamId) {
+        Assert.notNull(teamId, "teamId must not be null");
+        Team target = em.find(Team.class, teamId);
+        if (target == null) {
+            throw new EntityNotFoundException("team not found: " + teamId);
+        }
+        return target;
+    }
+    
+    /**
+     * @param memberIds 오름차순, 중복 없음
+     */
+    private MemberTransferResult move(List<Long> memberIds, Team target) {
+        MemberTransferResult result = new MemberTransferResult(target.getId());
+        if (memberIds.isEmpty()) {
+            return result;
+        }
+        em.flush();
+        
+        Set<Long> fromTeamIds = new HashSet<>();
+        for (int from = 0; from < memberIds.size(); from += chunkSize) {
+            List<Long> chunk = memberIds.subList(from, Math.min(from + chunkSize, memberIds.size()));
+            fromTeamIds.addAll(queryFactory
+                .select(member.team.id)
+                .distinct()
+                .from(member)
+                .where(member.id.in(chunk), member.team.isNotNull())
+                .fetch());
+            long moved = bulkQueryExecutor.execute(Member.class,
+                queryFactory
+                    .update(member)
+                    .set(member.team, target)
+                    .where(member.id.in(chunk), member.team.id.ne(target.getId()).or(member.team.isNull())),
+                chunk.get(0), chunk.get(chunk.size() - 1));
+            result.chunkMoved(moved);
+        }
+        fromTeamIds.remove(target.getId());
+        result.fromTeams(fromTeamIds);
+        
+        Set<Long> teamIds = new HashSet<>(fromTeamIds);
+        teamIds.add(target.getId());
+        refreshLoaded(memberIds, teamIds);
+        evictCaches(memberIds, teamIds);
+        return result;
+    }
+    
+    /**
+     * 벌크 update는 영속성 컨텍스트를 거치지 않으므로 이미 올라와 있는 엔티티만 다시 읽는다.
+     * Team은 members 컬렉션이 초기화된 경우만 refresh 한다. (refresh 후 컬렉션은 다시 지연 로딩된다)
+     */
+    private void refreshLoaded(Collection<Long> memberIds, Collection<Long> teamIds) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Long memberId : memberIds) {
+            Object loaded = loadedEntity(session, Member.class, memberId);
+            if (loaded != null) {
+                em.refresh(loaded);
+            }
+        }
+        for (Long teamId : teamIds) {
+            Object loaded = loadedEntity(session, Team.class, teamId);
+            if (loaded != null && Hibernate.isInitialized(((Team) loaded).getMembers())) {
+                em.refresh(loaded);
+            }
+        }
+    }
+    
+    /**
+     * 영속성 컨텍스트에 올라와 있는 엔티티, 없으면 null (DB를 조회하지 않는다. 초기화되지 않은 프록시도 null)
+     */
+    private Object loadedEntity(SessionImplementor session, Class<?> entityType, Long id) {
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityType);
+        return session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+    }
+    
+    private void evictCaches(List<Long> memberIds, Set<Long> teamIds) {
+        Cache cache = em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        for (Long memberId : memberIds) {
+            cache.evictEntityData(Member.class, memberId);
+        }
+        for (Long teamId : teamIds) {
+            cache.evictCollectionData(TEAM_MEMBERS, teamId);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.repository.transfer;
+
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 회원 팀 일괄 이동 결과
+ */
+@Getter
+@ToString
+public class MemberTransferResult {
+    
+    private final Long teamId;
+    private long moved;
+    private long chunks;
+    /** 옮긴 회원이 원래 있던 팀 (팀이 없던 회원은 포함되지 않는다) */
+    private final Set<Long> fromTeamIds = new TreeSet<>();
+    
+    MemberTransferResult(Long teamId) {
+        this.teamId = teamId;
+    }
+    
+    void chunkMoved(long moved) {
+        this.moved += moved;
+        this.chunks++;
+    }
+    
+    void fromTeams(Set<Long> teamIds) {
+        fromTeamIds.addAll(teamIds);
+    }
+}
@@ -0,0 +1,335 @@
+package study.querydsl.repository.writebehind;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.listener.MemberAgeDeltaEvent;
+import study.querydsl.repository.support.BulkQueryExecutor;
+import study.querydsl.repository.support.TableVersions;
+
+/**
+ * member.age 증감 write-behind 버퍼
+ * update member set age = age + 1 을 요청마다 트랜잭션 하나로 실행하는 대신 회원별 증감값을 모아서 한 번에 반영한다.
+ *
+ * 1. increment()는 ConcurrentHashMap.merge로 회원별 합계만 더한다. (키 단위 잠금이라 서로 다른 회원끼리 경합하지 않는다)
+ * 2. flush-interval-ms 마다, 또는 대기 중인 회원 수가 max-pending 이상이 되면
+ *    update member set age = age + ? where member_id = ? 배치 하나로 반영한다. 실패하면 증감값을 다시 버퍼에 넣는다.
+ *    반영한 age 합계 변화는 MemberAgeDeltaEvent 로 알려서 MemberAgeAggregates 가 전체 count, sum 을 다시 읽지 않게 한다.
+ * 3. MemberRepository 조회 결과(MemberTeamDto)에는 아직 반영되지 않은 증감값을 더해서 돌려준다. (read-your-writes)
+ *    flush는 꺼낸 증감값을 커밋이 끝날 때까지 inFlight 에 두므로 조회는 pending + inFlight 를 더한다.
+ *    DB 조회 동안에는 잠금을 잡지 않는다. 조회 도중 flush 커밋이 끼어들면(generation 이 바뀜) DB 결과에 그 증감값이 들어갔는지
+ *    알 수 없으므로, commitGate 로 커밋만 잠시 막고 한 번 더 조회한다.
+ *    age 조건이 있는 조회는 DB에서 걸러지므로 대기 중인 값이 있으면 flush 스레드에서 먼저 반영하고 기다린다.
+ *    조회 결과가 바로 바뀌므로 increment() 때 Member 테이블 버전(TableVersions)도 올린다. (ETag가 이전 age로 304를 주지 않게)
+ * 4. 종료 시 남은 값을 반영한다.
+ * 엔티티 조회(findById 등)에는 더하지 않는다. 영속 엔티티 값을 바꾸면 dirty checking으로 한 번 더 반영되기 때문이다.
+ */
+@Slf4j
+@Component
+public class MemberAgeWriteBehind {
+    
+    private static final String UPDATE_AGE = "update member set age = age + ? where member_id = ?";
+    
+    private final int maxPending;
+    private final JdbcTemplate jdbcTemplate;
+    private final BulkQueryExecutor bulkQueryExecutor;
+    private final TableVersions tableVersions;
+    private final TransactionTemplate flushTransaction;
+    private final Map<Long, Integer> pending = new ConcurrentHashMap<>();
+    private volatile Map<Long, Integer> inFlight = Collections.emptyMap();
+    /** flush 커밋 중이면 홀수. 커밋이 끝나고 inFlight 를 비운 뒤 짝수로 돌아온다. */
+    private volatile long generation;
+    /** pending, inFlight 를 함께 읽고 바꿀 때만 잡는다. (메모리 연산만) */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 조회가 flush 커밋과 겹쳤을 때 다시 조회하는 동안 커밋을 막는다. */
+    private final ReentrantReadWriteLock commitGate = new ReentrantReadWriteLock();
+    private final Lock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "member-age-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public MemberAgeWriteBehind(@Value("${member.write-behind.flush-interval-ms:1000}") long flushIntervalMillis,
+        @Value("${member.write-behind.max-pending:10000}") int maxPending,
+        JdbcTemplate jdbcTemplate, BulkQueryExecutor bulkQueryExecutor, TableVersions tableVersions,
+        PlatformTransactionManager transactionManager) {
+        this.maxPending = maxPending;
+        this.jdbcTemplate = jdbcTemplate;
+        this.bulkQueryExecutor = bulkQueryExecutor;
+        this.tableVersions = tableVersions;
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+            TimeUnit.MILLISECONDS);
+    }
+    
+    public void increment(Long memberId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        pending.merge(memberId, delta, Integer::sum);
+        tableVersions.touch(Member.class);
+        if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+    
+    /**
+     * 아직 DB에 반영되지 않은 증감값 (반영 중인 값 포함)
+     */
+    public int pending(Long memberId) {
+        lock.readLock().lock();
+        try {
+            return unflushed(memberId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int pendingMembers() {
+        return pending.size();
+    }
+    
+    /**
+     * 대기 중인 증감값을 반영한다. 동시에 하나의 flush만 실행한다.
+     * @return 갱신한 회원 수
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            TreeMap<Long, Integer> drained = drain();
+            if (drained.isEmpty()) {
+                return 0;
+            }
+            try {
+                flushTransaction.executeWithoutResult(status -> {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void beforeCommit(boolean readOnly) {
+                            commitGate.writeLock().lock();
+                            generation++;
+                        }
+                        
+                        @Override
+                        public void afterCompletion(int status) {
+                            release(drained, status == STATUS_COMMITTED);
+                            if (commitGate.isWriteLockedByCurrentThread()) {
+                                generation++;
+                                commitGate.writeLock().unlock();
+                            }
+                        }
+                    });
+                    List<Object[]> args = new ArrayList<>(drained.size());
+                    drained.forEach((memberId, delta) -> args.add(new Object[]{delta, memberId}));
+                    int[] updated = jdbcTemplate.batchUpdate(UPDATE_AGE, args);
+                    // 이미 삭제된 회원의 증감값은 합계에 넣지 않는다
+                    long ageDelta = 0;
+                    for (int i = 0; i < updated.length; i++) {
+                        if (updated[i] != 0) {
+                            ageDelta += (Integer) args.get(i)[0];
+                        }
+                    }
+                    bulkQueryExecutor.changed(new MemberAgeDeltaEvent(drained.size(), drained.firstKey(),
+                        drained.lastKey(), ageDelta));
+                });
+            } catch (RuntimeException e) {
+                release(drained, false);
+                throw e;
+            }
+            return drained.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * 조회 결과에 대기 중인 증감값을 더한다. (결과 DTO의 age를 직접 바꾼다)
+     */
+    public <T extends Iterable<MemberTeamDto>> T read(MemberSearchCondition condition, Supplier<T> query) {
+        return read(condition, query, (result, unflushed) -> {
+            for (MemberTeamDto row : result) {
+                int delta = unflushed.applyAsInt(row.getMemberId());
+                if (delta != 0) {
+                    row.setAge(row.getAge() + delta);
+                }
+            }
+        });
+    }
+    
+    public MemberTeamColumns readColumns(MemberSearchCondition condition, Supplier<MemberTeamColumns> query) {
+        return read(condition, query, (result, unflushed) -> {
+            for (int i = 0; i < result.size(); i++) {
+                int delta = unflushed.applyAsInt(result.memberId(i));
+                if (delta != 0) {
+                    result.addAge(i, delta);
+                }
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        int flushed = flush();
+        if (flushed > 0) {
+            log.info("flushed pending age changes of {} members on shutdown", flushed);
+        }
+    }
+    
+    /**
+     * 조회는 한 번 잠금 없이 실행하고, 그동안 flush 커밋이 없었으면 그대로 증감값을 더한다.
+     * 커밋과 겹쳤으면 commitGate 를 잡고(커밋만 기다리게 하고) 다시 조회한다.
+     */
+    private <T> T read(MemberSearchCondition condition, Supplier<T> query,
+        BiConsumer<T, ToIntFunction<Long>> addUnflushed) {
+        if ((condition.getAgeGoe() != null || condition.getAgeLoe() != null) && hasUnflushed()) {
+            flushBeforeRead();
+        }
+        long start = generation;
+        if (start % 2 == 0) {
+            T result = query.get();
+            if (applyIfUnchanged(start, result, addUnflushed)) {
+                return result;
+            }
+        }
+        commitGate.readLock().lock();
+        try {
+            T result = query.get();
+            lock.readLock().lock();
+            try {
+                if (hasUnflushed()) {
+                    addUnflushed.accept(result, this::unflushed);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return result;
+        } finally {
+            commitGate.readLock().unlock();
+        }
+    }
+    
+    private <T> boolean applyIfUnchanged(long start, T result, BiConsumer<T, ToIntFunction<Long>> addUnflushed) {
+        lock.readLock().lock();
+        try {
+            if (generation != start) {
+                return false;
+            }
+            if (hasUnflushed()) {
+                addUnflushed.accept(result, this::unflushed);
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * member_id 순서로 꺼내서 동시에 flush하는 다른 인스턴스와 행 잠금 순서가 엇갈리지 않게 한다.
+     */
+    private TreeMap<Long, Integer> drain() {
+        lock.writeLock().lock();
+        try {
+            TreeMap<Long, Integer> drained = new TreeMap<>();
+            for (Long memberId : pending.keySet()) {
+                Integer delta = pending.remove(memberId);
+                if (delta != null && delta != 0) {
+                    drained.put(memberId, delta);
+                }
+            }
+            inFlight = drained.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(drained);
+            return drained;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 커밋되지 않았으면 꺼낸 증감값을 다시 버퍼에 넣는다. 트랜잭션 종료 콜백과 예외 처리에서 모두 불리므로 한 번만 적용한다.
+     */
+    private void release(Map<Long, Integer> drained, boolean committed) {
+        lock.writeLock().lock();
+        try {
+            if (inFlight.isEmpty()) {
+                return;
+            }
+            if (!committed) {
+                drained.forEach((memberId, delta) -> pending.merge(memberId, delta, Integer::sum));
+            }
+            inFlight = Collections.emptyMap();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private boolean hasUnflushed() {
+        return !pending.isEmpty() || !inFlight.isEmpty();
+    }
+    
+    private int unflushed(Long memberId) {
+        return pending.getOrDefault(memberId, 0) + inFlight.getOrDefault(memberId, 0);
+    }
+    
+    /**
+     * 요청 스레드가 직접 배치 update를 실행하지 않고 flush 스레드에 맡긴 뒤 기다린다.
+     */
+    private void flushBeforeRead() {
+        try {
+            flusher.submit(this::flush).get();
+        } catch (RejectedExecutionException e) {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while flushing member age changes", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("member age write-behind flush failed", e.getCause());
+        }
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("member age write-behind flush failed, will retry", e);
+        }
+    }
+}
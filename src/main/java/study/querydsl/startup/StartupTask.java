@@ -0,0 +1,12 @@
+package study.querydsl.startup;
+
+/**
+ * 애플리케이션이 뜬 뒤 백그라운드에서 실행할 초기화 작업 (데이터 적재, 캐시/인덱스 워밍업 등)
+ * &#64;Order 순서대로 한 스레드에서 차례로 실행되고, 모두 끝나야 readiness가 UP이 된다. (StartupTaskRunner)
+ */
+public interface StartupTask {
+    
+    String getName();
+    
+    void run();
+}
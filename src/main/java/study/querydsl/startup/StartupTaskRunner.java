@@ -0,0 +1,150 @@
+package study.querydsl.startup;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline.TimelineEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.stereotype.Component;
+
+/**
+ * StartupTask 실행기
+ * &#64;PostConstruct에서 데이터를 넣으면 그동안 컨텍스트 초기화와 서버 시작이 모두 멈춘다.
+ * 여기서는 ApplicationReadyEvent 이후 별도 스레드에서 작업을 순서대로 실행하고, 작업별 상태와 소요 시간을 남긴다.
+ * 모두 끝나기 전까지 StartupTasksHealthIndicator가 OUT_OF_SERVICE를 반환하므로 readiness 프로브가 트래픽을 막는다.
+ */
+@Slf4j
+@Component
+public class StartupTaskRunner {
+    
+    private static final int SLOWEST_STEPS = 10;
+    
+    public enum Status {
+        PENDING, RUNNING, DONE, FAILED
+    }
+    
+    private final List<StartupTask> tasks;
+    private final ApplicationStartup applicationStartup;
+    private final Map<String, TaskState> states = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "startup-tasks");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public StartupTaskRunner(ObjectProvider<StartupTask> tasks, ApplicationStartup applicationStartup) {
+        this.tasks = tasks.orderedStream().collect(Collectors.toList());
+        this.applicationStartup = applicationStartup;
+        for (StartupTask task : this.tasks) {
+            states.put(task.getName(), new TaskState());
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(ApplicationReadyEvent event) {
+        log.info("application ready in {}ms, running {} startup tasks",
+            System.currentTimeMillis() - event.getApplicationContext().getStartupDate(), tasks.size());
+        logSlowestSteps();
+        executor.execute(() -> {
+            for (StartupTask task : tasks) {
+                if (!run(task)) {
+                    return;
+                }
+            }
+            log.info("startup tasks finished");
+        });
+    }
+    
+    /**
+     * 모든 작업이 끝났는지. 실패한 작업이 있으면 이후 작업은 실행하지 않는다.
+     */
+    public boolean isFinished() {
+        return states.values().stream().allMatch(state -> state.status == Status.DONE);
+    }
+    
+    public boolean isFailed() {
+        return states.values().stream().anyMatch(state -> state.status == Status.FAILED);
+    }
+    
+    /**
+     * 작업 이름 -> {status, millis, error}
+     */
+    public Map<String, Map<String, Object>> getStates() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        states.forEach((name, state) -> result.put(name, state.toMap()));
+        return result;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private boolean run(StartupTask task) {
+        TaskState state = states.get(task.getName());
+        long start = System.currentTimeMillis();
+        state.status = Status.RUNNING;
+        try {
+            task.run();
+            state.millis = System.currentTimeMillis() - start;
+            state.status = Status.DONE;
+            log.info("startup task {} finished in {}ms", task.getName(), state.millis);
+            return true;
+        } catch (RuntimeException e) {
+            state.millis = System.currentTimeMillis() - start;
+            state.error = e.toString();
+            state.status = Status.FAILED;
+            log.error("startup task {} failed", task.getName(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * BufferingApplicationStartup을 쓰는 경우(QuerydslApplication.main) 부팅 단계 중 오래 걸린 것을 남긴다.
+     * 전체 목록은 /actuator/startup 에서 볼 수 있다.
+     */
+    private void logSlowestSteps() {
+        if (!(applicationStartup instanceof BufferingApplicationStartup)) {
+            return;
+        }
+        List<TimelineEvent> events = ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline()
+            .getEvents();
+        String slowest = events.stream()
+            .sorted(Comparator.comparing(TimelineEvent::getDuration).reversed())
+            .limit(SLOWEST_STEPS)
+            .map(e -> String.format("%6dms %s %s", e.getDuration().toMillis(), e.getStartupStep().getName(),
+                StreamSupport.stream(e.getStartupStep().getTags().spliterator(), false)
+                    .map(tag -> tag.getKey() + "=" + tag.getValue())
+                    .collect(Collectors.joining(", "))))
+            .collect(Collectors.joining("\n"));
+        log.info("slowest startup steps:\n{}", slowest);
+    }
+    
+    private static class TaskState {
+        
+        private volatile Status status = Status.PENDING;
+        private volatile long millis;
+        private volatile String error;
+        
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("status", status);
+            map.put("millis", millis);
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.startup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * 시작 작업 상태 (/actuator/health/readiness 에 포함, application.yml management.endpoint.health.group)
+ * 실행 중이면 OUT_OF_SERVICE, 실패하면 DOWN, 모두 끝나면 UP
+ */
+@Component
+@RequiredArgsConstructor
+public class StartupTasksHealthIndicator extends AbstractHealthIndicator {
+    
+    private final StartupTaskRunner startupTaskRunner;
+    
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (startupTaskRunner.isFailed()) {
+            builder.down();
+        } else if (startupTaskRunner.isFinished()) {
+            builder.up();
+        } else {
+            builder.outOfService();
+        }
+        startupTaskRunner.getStates().forEach(builder::withDetail);
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 조회 비용 등급의 동시 실행 한도를 넘어 거절된 요청. 503 + Retry-After
+ */
+public class AdmissionRejectedException extends ResponseStatusException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final long retryAfterSeconds;
+    
+    public AdmissionRejectedException(MemberSearchAdmission.CostClass cost, long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "too many " + cost + " searches, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    @Override
+    public HttpHeaders getResponseHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return headers;
+    }
+}
@@ -0,0 +1,174 @@
+package study.querydsl.web;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * 회원 검색 결과를 컬럼 단위로 내려주는 JSON 포맷
+ * Accept: application/vnd.querydsl.columnar-json 요청일 때만 사용된다.
+ * (+json 접미사를 쓰면 기본 JSON 컨버터가 application/*+json 으로 가로채므로 쓰지 않는다.)
+ *
+ * 행마다 키를 반복하는 대신 컬럼 이름은 columns 에 한 번만 쓰고, data 에는 columns 순서대로 컬럼별 값 배열을 쓴다.
+ * teamName은 종류가 적으므로 teamNames 사전의 인덱스로 내려준다.
+ * <pre>
+ * {
+ *   "columns": ["memberId", "username", "age", "teamId", "teamName"],
+ *   "teamNames": ["teamA", "teamB"],
+ *   "data": [[1, 2], ["member1", "member2"], [10, 20], [1, 2], [0, 1]],
+ *   "page": {"number": 0, "size": 20, "totalElements": 2, "totalPages": 1}
+ * }
+ * </pre>
+ * page는 Page 응답일 때만 쓴다.
+ */
+public class MemberColumnarHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    
+    public static final MediaType COLUMNAR_JSON = MediaType.valueOf("application/vnd.querydsl.columnar-json");
+    
+    private static final String[] COLUMNS = {"memberId", "username", "age", "teamId", "teamName"};
+    
+    private final ObjectMapper objectMapper;
+    
+    public MemberColumnarHttpMessageConverter(ObjectMapper objectMapper) {
+        super(COLUMNAR_JSON);
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+    
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Page.class.isAssignableFrom(clazz) || List.class.isAssignableFrom(clazz);
+    }
+    
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType) || type == null) {
+            return false;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        Class<?> raw = resolved.resolve(clazz);
+        if (raw == null || !supports(raw)) {
+            return false;
+        }
+        Class<?> element = resolved.as(raw).getGeneric(0).resolve();
+        return element != null && MemberTeamDto.class.isAssignableFrom(element);
+    }
+    
+    @Override
+    protected void writeInternal(Object result, Type type, HttpOutputMessage outputMessage)
+        throws IOException, HttpMessageNotWritableException {
+        List<MemberTeamDto> rows = contentOf(result);
+        
+        try (JsonGenerator generator = objectMapper.getFactory()
+            .createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            
+            generator.writeArrayFieldStart("columns");
+            for (String column : COLUMNS) {
+                generator.writeString(column);
+            }
+            generator.writeEndArray();
+            
+            Map<String, Integer> teamNames = new LinkedHashMap<>();
+            for (MemberTeamDto row : rows) {
+                if (row.getTeamName() != null) {
+                    teamNames.putIfAbsent(row.getTeamName(), teamNames.size());
+                }
+            }
+            generator.writeArrayFieldStart("teamNames");
+            for (String teamName : teamNames.keySet()) {
+                generator.writeString(teamName);
+            }
+            generator.writeEndArray();
+            
+            generator.writeArrayFieldStart("data");
+            writeLongColumn(generator, rows, MemberTeamDto::getMemberId);
+            generator.writeStartArray();
+            for (MemberTeamDto row : rows) {
+                generator.writeString(row.getUsername());
+            }
+            generator.writeEndArray();
+            generator.writeStartArray();
+            for (MemberTeamDto row : rows) {
+                generator.writeNumber(row.getAge());
+            }
+            generator.writeEndArray();
+            writeLongColumn(generator, rows, MemberTeamDto::getTeamId);
+            generator.writeStartArray();
+            for (MemberTeamDto row : rows) {
+                if (row.getTeamName() == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(teamNames.get(row.getTeamName()));
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndArray();
+            
+            if (result instanceof Page) {
+                Page<?> page = (Page<?>) result;
+                generator.writeObjectFieldStart("page");
+                generator.writeNumberField("number", page.getNumber());
+                generator.writeNumberField("size", page.getSize());
+                generator.writeNumberField("totalElements", page.getTotalElements());
+                generator.writeNumberField("totalPages", page.getTotalPages());
+                generator.writeEndObject();
+            }
+            
+            generator.writeEndObject();
+        }
+    }
+    
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+        throws IOException, HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("Columnar format is write only", inputMessage);
+    }
+    
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+        throws IOException, HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("Columnar format is write only", inputMessage);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<MemberTeamDto> contentOf(Object result) {
+        if (result instanceof Page) {
+            return ((Page<MemberTeamDto>) result).getContent();
+        }
+        return (List<MemberTeamDto>) result;
+    }
+    
+    private void writeLongColumn(JsonGenerator generator, List<MemberTeamDto> rows,
+        Function<MemberTeamDto, Long> getter) throws IOException {
+        generator.writeStartArray();
+        for (MemberTeamDto row : rows) {
+            Long value = getter.apply(row);
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+        generator.writeEndArray();
+    }
+}
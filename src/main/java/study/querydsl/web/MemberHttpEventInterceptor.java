@@ -0,0 +1,63 @@
+package study.querydsl.web;
+
+import java.util.Set;
+import java.util.TreeSet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.jfr.MemberHttpEvent;
+
+/**
+ * MemberController 요청마다 JFR 이벤트(MemberHttpEvent)를 남긴다.
+ * 이벤트가 꺼져 있으면(기록 중이 아니면) isEnabled() 확인만 하고 지나간다.
+ */
+public class MemberHttpEventInterceptor implements HandlerInterceptor {
+    
+    private static final String EVENT = MemberHttpEventInterceptor.class.getName() + ".event";
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        MemberHttpEvent event = new MemberHttpEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            request.setAttribute(EVENT, event);
+        }
+        return true;
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+        Exception ex) {
+        MemberHttpEvent event = (MemberHttpEvent) request.getAttribute(EVENT);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.httpMethod = request.getMethod();
+        event.uri = request.getRequestURI();
+        event.handler = handler instanceof HandlerMethod
+            ? ((HandlerMethod) handler).getMethod().getName() : String.valueOf(handler);
+        Set<String> conditions = new TreeSet<>(request.getParameterMap().keySet());
+        conditions.remove("sort");
+        event.pageNumber = intParameter(request, conditions, "page");
+        event.pageSize = intParameter(request, conditions, "size");
+        event.conditionShape = conditions.isEmpty() ? "(none)" : String.join(", ", conditions);
+        event.status = response.getStatus();
+        event.failed = ex != null;
+        event.commit();
+    }
+    
+    private static int intParameter(HttpServletRequest request, Set<String> conditions, String name) {
+        conditions.remove(name);
+        try {
+            String value = request.getParameter(name);
+            return value == null ? -1 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
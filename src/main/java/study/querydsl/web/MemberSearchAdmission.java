@@ -0,0 +1,147 @@
+package study.querydsl.web;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.servlet.http.HttpServletResponse;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 회원 검색 입장 제어
+ * 조건 없는 /v1 조회(테이블 전체)나 /v2 count(테이블 전체 count) 몇 개가 동시에 돌면 다른 요청이 모두 밀린다.
+ * 검색 조건 모양과 페이지 깊이로 비용 등급을 정하고 등급별로 동시 실행 수를 제한한다.
+ *
+ * 1. CHEAP: username 또는 usernamePrefix 조건 (PK/인덱스 조회)
+ * 2. MODERATE: teamName, ageGoe, ageLoe 조건만 있음
+ * 3. EXPENSIVE: 조건 없음
+ * offset이 deep-offset 이상이면 한 등급 올린다.
+ *
+ * 등급 슬롯을 queue-timeout 안에 얻지 못하면
+ * EXPENSIVE는 대체 조회(downgrade, 예: limit 조회, 캐시된 count)가 있으면 MODERATE 슬롯으로 대체 조회를 하고
+ * 그 외에는 503 + Retry-After로 거절한다. 대체 조회 응답에는 X-Query-Downgraded 헤더가 붙는다.
+ */
+@Slf4j
+@Component
+public class MemberSearchAdmission {
+    
+    public static final String DOWNGRADED_HEADER = "X-Query-Downgraded";
+    
+    public enum CostClass {
+        CHEAP, MODERATE, EXPENSIVE;
+        
+        CostClass higher() {
+            return this == CHEAP ? MODERATE : EXPENSIVE;
+        }
+    }
+    
+    private final boolean enabled;
+    private final long queueTimeoutMillis;
+    private final long deepOffset;
+    @Getter
+    private final int downgradeLimit;
+    private final Map<CostClass, Semaphore> slots = new EnumMap<>(CostClass.class);
+    
+    public MemberSearchAdmission(@Value("${member.admission.enabled:true}") boolean enabled,
+        @Value("${member.admission.cheap-limit:64}") int cheapLimit,
+        @Value("${member.admission.moderate-limit:16}") int moderateLimit,
+        @Value("${member.admission.expensive-limit:2}") int expensiveLimit,
+        @Value("${member.admission.queue-timeout-ms:200}") long queueTimeoutMillis,
+        @Value("${member.admission.deep-offset:1000}") long deepOffset,
+        @Value("${member.admission.downgrade-limit:1000}") int downgradeLimit) {
+        this.enabled = enabled;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.deepOffset = deepOffset;
+        this.downgradeLimit = downgradeLimit;
+        slots.put(CostClass.CHEAP, new Semaphore(cheapLimit, true));
+        slots.put(CostClass.MODERATE, new Semaphore(moderateLimit, true));
+        slots.put(CostClass.EXPENSIVE, new Semaphore(expensiveLimit, true));
+    }
+    
+    /**
+     * @param pageable 페이징이 없는 조회(/v1)면 null
+     */
+    public CostClass estimate(MemberSearchCondition condition, Pageable pageable) {
+        CostClass cost;
+        if (hasText(condition.getUsername()) || hasText(condition.getUsernamePrefix())) {
+            cost = CostClass.CHEAP;
+        } else if (hasText(condition.getTeamName())
+            || condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+            cost = CostClass.MODERATE;
+        } else {
+            cost = CostClass.EXPENSIVE;
+        }
+        if (pageable != null && pageable.isPaged() && pageable.getOffset() >= deepOffset) {
+            cost = cost.higher();
+        }
+        return cost;
+    }
+    
+    public boolean isUnfiltered(MemberSearchCondition condition) {
+        return !hasText(condition.getUsername()) && !hasText(condition.getUsernamePrefix())
+            && !hasText(condition.getTeamName())
+            && condition.getAgeGoe() == null && condition.getAgeLoe() == null;
+    }
+    
+    /**
+     * @param query     원래 조회
+     * @param downgrade EXPENSIVE 슬롯이 없을 때 대신할 조회. 대체할 수 없으면 빈 Optional
+     */
+    public <T> T execute(CostClass cost, Supplier<T> query, Supplier<Optional<T>> downgrade,
+        HttpServletResponse response) {
+        if (!enabled) {
+            return query.get();
+        }
+        if (acquire(cost)) {
+            try {
+                return query.get();
+            } finally {
+                slots.get(cost).release();
+            }
+        }
+        if (cost == CostClass.EXPENSIVE && downgrade != null && acquire(CostClass.MODERATE)) {
+            try {
+                Optional<T> downgraded = downgrade.get();
+                if (downgraded.isPresent()) {
+                    markDowngraded(response);
+                    return downgraded.get();
+                }
+            } finally {
+                slots.get(CostClass.MODERATE).release();
+            }
+        }
+        log.info("member search rejected: {}", cost);
+        throw new AdmissionRejectedException(cost, 1);
+    }
+    
+    /**
+     * 대체 조회 결과가 원래 결과의 ETag로 캐시되면 안 되므로 ETag를 바꾸고 저장하지 못하게 한다.
+     */
+    private static void markDowngraded(HttpServletResponse response) {
+        response.setHeader(DOWNGRADED_HEADER, "true");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag.replaceFirst("\"$", "-downgraded\""));
+        }
+    }
+    
+    private boolean acquire(CostClass cost) {
+        try {
+            return slots.get(cost).tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydsl.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * 기본 JSON 컨버터보다 뒤에 등록해서 Accept 헤더로 명시한 경우에만 컬럼 포맷을 쓴다.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MemberColumnarHttpMessageConverter(objectMapper));
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new MemberHttpEventInterceptor())
+            .addPathPatterns("/v1/members/**", "/v2/members/**", "/v3/members/**", "/v1/teams/**");
+    }
+}
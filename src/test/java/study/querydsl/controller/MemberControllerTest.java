@@ -0,0 +1,132 @@
+package study.querydsl.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.TableVersions;
+import study.querydsl.web.MemberColumnarHttpMessageConverter;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+    
+    @Autowired
+    MockMvc mockMvc;
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    TableVersions tableVersions;
+    
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        
+        em.persist(new Member("ctrl1", 10, teamA));
+        em.persist(new Member("ctrl2", 20, teamB));
+        em.persist(new Member("ctrl3", 30, teamA));
+        em.persist(new Member("ctrl4", 40));
+        em.flush();
+    }
+    
+    @Test
+    public void defaultIsJson() throws Exception {
+        mockMvc.perform(get("/v2/members").param("usernamePrefix", "ctrl"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.content[0].username").value("ctrl1"))
+            .andExpect(jsonPath("$.totalElements").value(4));
+    }
+    
+    @Test
+    public void columnarPage() throws Exception {
+        mockMvc.perform(get("/v3/members").param("usernamePrefix", "ctrl")
+                .param("size", "3")
+                .accept(MemberColumnarHttpMessageConverter.COLUMNAR_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MemberColumnarHttpMessageConverter.COLUMNAR_JSON))
+            .andExpect(jsonPath("$.columns[1]").value("username"))
+            .andExpect(jsonPath("$.teamNames.length()").value(2))
+            .andExpect(jsonPath("$.data.length()").value(5))
+            .andExpect(jsonPath("$.data[1][2]").value("ctrl3"))
+            .andExpect(jsonPath("$.data[4][0]").value(0))
+            .andExpect(jsonPath("$.data[4][1]").value(1))
+            .andExpect(jsonPath("$.data[4][2]").value(0))
+            .andExpect(jsonPath("$.page.totalElements").value(4));
+    }
+    
+    @Test
+    public void columnarList() throws Exception {
+        mockMvc.perform(get("/v1/members").param("usernamePrefix", "ctrl")
+                .accept(MemberColumnarHttpMessageConverter.COLUMNAR_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.columns[2]").value("age"))
+            .andExpect(jsonPath("$.data[2].length()").value(4))
+            .andExpect(jsonPath("$.data[3][3]").isEmpty())
+            .andExpect(jsonPath("$.page").doesNotExist());
+    }
+    
+    @Test
+    public void notModified() throws Exception {
+        String etag = mockMvc.perform(get("/v2/members").param("usernamePrefix", "ctrl"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        
+        mockMvc.perform(get("/v2/members").param("usernamePrefix", "ctrl")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+        
+        mockMvc.perform(get("/v2/members").param("usernamePrefix", "ctrl").param("page", "1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk());
+        
+        em.persist(new Member("ctrl5", 50));
+        em.flush();
+        
+        mockMvc.perform(get("/v2/members").param("usernamePrefix", "ctrl")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(5));
+    }
+    
+    /**
+     * 재시작하면 테이블 버전이 0부터 다시 시작하므로 이전 기동의 ETag와 겹치면 안 된다.
+     */
+    @Test
+    public void etagDiffersAcrossRestart() throws Exception {
+        String etag = mockMvc.perform(get("/v2/members").param("usernamePrefix", "ctrl"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        
+        String epoch = tableVersions.getEpoch();
+        ReflectionTestUtils.setField(tableVersions, "epoch", "restarted");
+        try {
+            mockMvc.perform(get("/v2/members").param("usernamePrefix", "ctrl")
+                    .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        } finally {
+            ReflectionTestUtils.setField(tableVersions, "epoch", epoch);
+        }
+    }
+}
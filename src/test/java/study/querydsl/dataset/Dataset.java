@@ -0,0 +1,30 @@
+package study.querydsl.dataset;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * 테스트 시작 전에 member, team 테이블을 지정한 크기의 데이터셋으로 바꾼다.
+ * 클래스에 붙이면 클래스 시작 시 한 번, 메서드에 붙이면 그 메서드 실행 전에 복원한다.
+ * 같은 (members, teams, seed) 스냅샷이 있으면 파일에서 복원하고, 없으면 만들어서 저장한다. (DatasetSnapshots)
+ *
+ * <pre>
+ * &#64;SpringBootTest
+ * &#64;Dataset(members = 100_000, teams = 100)
+ * class MemberSearchBenchmarkTest { ... }
+ * </pre>
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(DatasetExtension.class)
+public @interface Dataset {
+    
+    int members();
+    
+    int teams() default 10;
+    
+    long seed() default 42;
+}
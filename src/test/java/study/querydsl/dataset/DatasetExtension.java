@@ -0,0 +1,33 @@
+package study.querydsl.dataset;
+
+import java.util.Optional;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * &#64;Dataset 처리. 테스트의 스프링 컨텍스트에서 DatasetSnapshots를 만들어 복원한다.
+ * 복원은 별도 트랜잭션으로 커밋되므로 &#64;Transactional 테스트가 롤백해도 데이터셋은 그대로 남는다.
+ */
+public class DatasetExtension implements BeforeAllCallback, BeforeEachCallback {
+    
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        AnnotationSupport.findAnnotation(context.getRequiredTestClass(), Dataset.class)
+            .ifPresent(dataset -> restore(context, dataset));
+    }
+    
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        Optional<Dataset> dataset = AnnotationSupport.findAnnotation(context.getTestMethod(), Dataset.class);
+        dataset.ifPresent(it -> restore(context, it));
+    }
+    
+    private static void restore(ExtensionContext context, Dataset dataset) {
+        ApplicationContext applicationContext = SpringExtension.getApplicationContext(context);
+        DatasetSnapshots.from(applicationContext).restore(dataset.members(), dataset.teams(), dataset.seed());
+    }
+}
@@ -0,0 +1,169 @@
+package study.querydsl.dataset;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.importer.MemberImporter;
+import study.querydsl.repository.support.BulkQueryExecutor;
+
+/**
+ * member, team 데이터셋 스냅샷
+ * (members, teams, seed) 마다 {dataset.dir}/m{members}-t{teams}-s{seed}/ 에 CSV로 저장해 두고
+ * 다음부터는 H2 CSVREAD로 한 번에 복원한다. em.persist 반복으로 만드는 것보다 수십 배 빠르다.
+ *
+ * 1. 처음: 두 테이블을 비우고 MemberImporter(JDBC 배치)로 만든 뒤 CSVWRITE로 저장한다.
+ * 2. 다음부터: 두 테이블을 비우고 insert ... select from CSVREAD 로 복원한다.
+ * 3. 복원한 id보다 hibernate_sequence가 작으면 앞으로 당겨서 이후 persist와 id가 겹치지 않게 한다.
+ *
+ * 저장 위치는 dataset.dir (Gradle 실행이면 $buildDir/datasets), 없으면 테스트 클래스 위치에서 위로 올라가며 찾은
+ * 프로젝트 폴더(build.gradle)의 build/datasets, 그것도 없으면 임시 폴더다. 작업 폴더에 따라 위치가 바뀌지 않는다.
+ * CSVWRITE/CSVREAD는 DB 서버가 파일을 읽고 쓴다. TCP 서버가 다른 머신에 있으면 dataset.dir을 서버 기준 경로로 지정해야 한다.
+ * 데이터: username = member{i}, age = seed로 만든 0~99 난수, team = team{i % teams}
+ */
+@Slf4j
+public class DatasetSnapshots {
+    
+    private static final Path DIRECTORY = Optional.ofNullable(System.getProperty("dataset.dir"))
+        .map(Paths::get)
+        .orElseGet(DatasetSnapshots::defaultDirectory)
+        .toAbsolutePath();
+    private static final String TEAM_FILE = "team.csv";
+    private static final String MEMBER_FILE = "member.csv";
+    private static final int SEED_CHUNK = 10_000;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final MemberImporter memberImporter;
+    private final BulkQueryExecutor bulkQueryExecutor;
+    private final TransactionTemplate transaction;
+    
+    public DatasetSnapshots(JdbcTemplate jdbcTemplate, MemberImporter memberImporter,
+        BulkQueryExecutor bulkQueryExecutor, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.memberImporter = memberImporter;
+        this.bulkQueryExecutor = bulkQueryExecutor;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    public static DatasetSnapshots from(ApplicationContext context) {
+        return new DatasetSnapshots(context.getBean(JdbcTemplate.class), context.getBean(MemberImporter.class),
+            context.getBean(BulkQueryExecutor.class), context.getBean(PlatformTransactionManager.class));
+    }
+    
+    private static Path defaultDirectory() {
+        try {
+            Path path = Paths.get(DatasetSnapshots.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            for (; path != null; path = path.getParent()) {
+                if (Files.exists(path.resolve("build.gradle"))) {
+                    return path.resolve("build").resolve("datasets");
+                }
+            }
+        } catch (URISyntaxException | SecurityException e) {
+            log.debug("project directory not found", e);
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "querydsl-datasets");
+    }
+    
+    /**
+     * member, team 테이블을 데이터셋으로 바꾼다. 기존 데이터는 모두 지워진다.
+     */
+    public void restore(int members, int teams, long seed) {
+        long start = System.currentTimeMillis();
+        Path snapshot = DIRECTORY.resolve(String.format("m%d-t%d-s%d", members, teams, seed));
+        if (Files.exists(snapshot.resolve(MEMBER_FILE))) {
+            load(snapshot);
+            log.info("dataset {} restored in {}ms", snapshot.getFileName(), System.currentTimeMillis() - start);
+        } else {
+            generate(members, teams, seed);
+            save(snapshot);
+            log.info("dataset {} generated in {}ms", snapshot.getFileName(), System.currentTimeMillis() - start);
+        }
+    }
+    
+    private void generate(int members, int teams, long seed) {
+        transaction.executeWithoutResult(status -> clear());
+        Random random = new Random(seed);
+        try {
+            for (int from = 0; from < members; from += SEED_CHUNK) {
+                StringBuilder ndjson = new StringBuilder();
+                for (int i = from; i < Math.min(members, from + SEED_CHUNK); i++) {
+                    ndjson.append("{\"username\":\"member").append(i)
+                        .append("\",\"age\":").append(random.nextInt(100))
+                        .append(",\"teamName\":\"team").append(i % teams).append("\"}\n");
+                }
+                memberImporter.importMembers(
+                    new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)),
+                    MemberImporter.Format.NDJSON);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * 임시 폴더에 쓴 뒤 이름을 바꿔서, 저장 도중 실패해도 반쯤 쓴 스냅샷이 남지 않게 한다.
+     */
+    private void save(Path snapshot) {
+        try {
+            Files.createDirectories(DIRECTORY);
+            Path temp = Files.createTempDirectory(DIRECTORY, snapshot.getFileName() + ".tmp");
+            jdbcTemplate.execute("call csvwrite(" + literal(temp.resolve(TEAM_FILE))
+                + ", 'select id, name from team order by id', 'charset=UTF-8')");
+            jdbcTemplate.execute("call csvwrite(" + literal(temp.resolve(MEMBER_FILE))
+                + ", 'select member_id, username, age, team_id from member order by member_id', 'charset=UTF-8')");
+            Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void load(Path snapshot) {
+        transaction.executeWithoutResult(status -> {
+            clear();
+            int teams = jdbcTemplate.update("insert into team (id, name)"
+                + " select cast(id as bigint), name"
+                + " from csvread(" + literal(snapshot.resolve(TEAM_FILE)) + ", null, 'charset=UTF-8')");
+            int members = jdbcTemplate.update("insert into member (member_id, username, age, team_id)"
+                + " select cast(member_id as bigint), username, cast(age as int), cast(nullif(team_id, '') as bigint)"
+                + " from csvread(" + literal(snapshot.resolve(MEMBER_FILE)) + ", null, 'charset=UTF-8')");
+            advanceSequence();
+            bulkQueryExecutor.changed(Team.class, teams);
+            bulkQueryExecutor.changed(Member.class, members);
+        });
+    }
+    
+    private void clear() {
+        bulkQueryExecutor.changed(Member.class, jdbcTemplate.update("delete from member"));
+        bulkQueryExecutor.changed(Team.class, jdbcTemplate.update("delete from team"));
+    }
+    
+    private void advanceSequence() {
+        Long maxId = jdbcTemplate.queryForObject("select greatest("
+            + " coalesce((select max(member_id) from member), 0),"
+            + " coalesce((select max(id) from team), 0))", Long.class);
+        Long next = jdbcTemplate.queryForObject("select next value for hibernate_sequence", Long.class);
+        if (next <= maxId) {
+            jdbcTemplate.execute("alter sequence hibernate_sequence restart with " + (maxId + 1));
+        }
+    }
+    
+    private static String literal(Path path) {
+        return "'" + path.toString().replace("'", "''") + "'";
+    }
+}
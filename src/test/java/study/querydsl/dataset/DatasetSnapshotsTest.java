@@ -0,0 +1,84 @@
+package study.querydsl.dataset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 메서드에 붙인 데이터셋은 이후 메서드에도 남으므로 마지막에 실행한다.
+ */
+@SpringBootTest
+@Dataset(members = 300, teams = 3, seed = 7)
+@TestMethodOrder(OrderAnnotation.class)
+class DatasetSnapshotsTest {
+    
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    ApplicationContext context;
+    
+    /**
+     * 다른 테스트가 member0 같은 이름을 쓰므로 데이터셋을 남기지 않는다.
+     */
+    @AfterAll
+    static void clear(@Autowired JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+    }
+    
+    @Test
+    public void restoredDataset() {
+        assertThat(count("member")).isEqualTo(300);
+        assertThat(count("team")).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject(
+            "select count(*) from member m join team t on m.team_id = t.id where t.name = 'team1'", Long.class))
+            .isEqualTo(100);
+    }
+    
+    @Test
+    public void restoreUndoesChanges() {
+        List<Map<String, Object>> before = members();
+        jdbcTemplate.update("update member set age = age + 1000");
+        jdbcTemplate.update("delete from member where username = 'member0'");
+        
+        DatasetSnapshots.from(context).restore(300, 3, 7);
+        
+        assertThat(members()).isEqualTo(before);
+    }
+    
+    @Test
+    public void sequenceIsAheadOfRestoredIds() {
+        DatasetSnapshots.from(context).restore(300, 3, 7);
+        
+        Long maxId = jdbcTemplate.queryForObject("select max(member_id) from member", Long.class);
+        Long next = jdbcTemplate.queryForObject("select next value for hibernate_sequence", Long.class);
+        assertThat(next).isGreaterThan(maxId);
+    }
+    
+    @Test
+    @Order(Integer.MAX_VALUE)
+    @Dataset(members = 50, teams = 5, seed = 7)
+    public void methodLevelDataset() {
+        assertThat(count("member")).isEqualTo(50);
+        assertThat(count("team")).isEqualTo(5);
+    }
+    
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+    
+    private List<Map<String, Object>> members() {
+        return jdbcTemplate.queryForList("select member_id, username, age, team_id from member order by member_id");
+    }
+}
@@ -0,0 +1,157 @@
+package study.querydsl.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.querydsl.entity.QMember.member;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class JfrEventsTest {
+    
+    static final String REPOSITORY_QUERY = "study.querydsl.RepositoryQuery";
+    static final String HTTP_REQUEST = "study.querydsl.MemberHttpRequest";
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    MockMvc mockMvc;
+    
+    @Autowired
+    MemberRepository memberRepository;
+    
+    @Autowired
+    MemberTestRepository memberTestRepository;
+    
+    @BeforeEach
+    void before() {
+        Team team = new Team("jfrTeam");
+        em.persist(team);
+        em.persist(new Member("jfr1", 10, team));
+        em.persist(new Member("jfr2", 20, team));
+        em.persist(new Member("jfr3", 30));
+        em.flush();
+        em.clear();
+    }
+    
+    @Test
+    public void repositoryAndHttpEvents() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("jfr");
+        
+        List<RecordedEvent> events = record(() -> {
+            memberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+            memberRepository.search(condition);
+            memberTestRepository.applyPagination2(condition, PageRequest.of(0, 2));
+            mockMvc.perform(get("/v3/members").param("usernamePrefix", "jfr").param("page", "0").param("size", "2"))
+                .andExpect(status().isOk());
+        });
+        
+        List<RecordedEvent> queries = events.stream()
+            .filter(event -> event.getEventType().getName().equals(REPOSITORY_QUERY))
+            .collect(Collectors.toList());
+        assertThat(queries).extracting(event -> event.getString("method"))
+            .containsExactly("searchPageComplex", "searchPageSimple", "search", "applyPagination",
+                "searchPageComplex");
+        
+        // 첫 페이지에서 컨텐츠가 페이지 크기보다 작으면 count 쿼리를 생략한다.
+        RecordedEvent complex = queries.get(0);
+        assertThat(complex.getString("repository")).isEqualTo("MemberRepositoryImpl");
+        assertThat(complex.getString("conditionShape")).isEqualTo("usernamePrefix");
+        assertThat(complex.getInt("pageNumber")).isEqualTo(0);
+        assertThat(complex.getInt("pageSize")).isEqualTo(10);
+        assertThat(complex.getLong("rows")).isEqualTo(3);
+        assertThat(complex.getBoolean("countSkipped")).isTrue();
+        assertThat(complex.getDuration()).isPositive();
+        
+        assertThat(queries.get(1).getBoolean("countSkipped")).isFalse();
+        assertThat(queries.get(2).getInt("pageSize")).isEqualTo(-1);
+        assertThat(queries.get(2).getBoolean("countSkipped")).isFalse();
+        
+        RecordedEvent applyPagination = queries.get(3);
+        assertThat(applyPagination.getString("repository")).isEqualTo("MemberTestRepository");
+        assertThat(applyPagination.getString("conditionShape")).contains("member1.username STARTS_WITH");
+        assertThat(applyPagination.getLong("rows")).isEqualTo(2);
+        assertThat(applyPagination.getBoolean("countSkipped")).isFalse();
+        
+        RecordedEvent http = events.stream()
+            .filter(event -> event.getEventType().getName().equals(HTTP_REQUEST))
+            .findFirst()
+            .orElseThrow();
+        assertThat(http.getString("httpMethod")).isEqualTo("GET");
+        assertThat(http.getString("uri")).isEqualTo("/v3/members");
+        assertThat(http.getString("handler")).isEqualTo("searchMemberV3");
+        assertThat(http.getString("conditionShape")).isEqualTo("usernamePrefix");
+        assertThat(http.getInt("pageNumber")).isEqualTo(0);
+        assertThat(http.getInt("pageSize")).isEqualTo(2);
+        assertThat(http.getInt("status")).isEqualTo(200);
+        assertThat(http.getBoolean("failed")).isFalse();
+    }
+    
+    @Test
+    public void shapeOf() {
+        assertThat(RepositoryQueryEvent.shapeOf(member.age.goe(10).and(member.username.startsWith("a"))))
+            .isEqualTo("member1.age GOE, member1.username STARTS_WITH");
+        assertThat(RepositoryQueryEvent.shapeOf(null)).isEqualTo("(none)");
+    }
+    
+    @Test
+    public void presetProfile() throws Exception {
+        try (Reader reader = new InputStreamReader(
+            getClass().getResourceAsStream("/jfr/querydsl.jfc"), StandardCharsets.UTF_8)) {
+            Configuration configuration = Configuration.create(reader);
+            assertThat(configuration.getSettings())
+                .containsEntry(REPOSITORY_QUERY + "#enabled", "true")
+                .containsEntry(HTTP_REQUEST + "#enabled", "true");
+        }
+    }
+    
+    interface Action {
+        void run() throws Exception;
+    }
+    
+    private List<RecordedEvent> record(Action action) throws Exception {
+        Path file = Files.createTempFile("querydsl", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(REPOSITORY_QUERY).withThreshold(Duration.ZERO);
+            recording.enable(HTTP_REQUEST).withThreshold(Duration.ZERO);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
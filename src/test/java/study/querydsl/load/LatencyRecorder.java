@@ -0,0 +1,56 @@
+package study.querydsl.load;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 응답 시간 기록기
+ * 값을 모두 보관했다가 정렬해서 백분위를 구한다. 부하 테스트 한 번에 수십만 건 정도라 히스토그램 없이도 충분하다.
+ */
+class LatencyRecorder {
+    
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    
+    synchronized void success(long latencyNanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+    }
+    
+    synchronized void error() {
+        errors++;
+    }
+    
+    /**
+     * @param elapsedNanos 측정 구간 길이 (처리량 계산용)
+     */
+    synchronized Map<String, Object> summary(long elapsedNanos) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long total = count + errors;
+        
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", total);
+        summary.put("errors", errors);
+        summary.put("errorRate", total == 0 ? 0 : (double) errors / total);
+        summary.put("throughput", total * 1_000_000_000.0 / elapsedNanos);
+        summary.put("p50Millis", percentileMillis(sorted, 0.50));
+        summary.put("p95Millis", percentileMillis(sorted, 0.95));
+        summary.put("p99Millis", percentileMillis(sorted, 0.99));
+        summary.put("p999Millis", percentileMillis(sorted, 0.999));
+        summary.put("maxMillis", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1_000_000.0);
+        return summary;
+    }
+    
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
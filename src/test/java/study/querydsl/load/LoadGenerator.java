@@ -0,0 +1,90 @@
+package study.querydsl.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 고정 도착률(open-loop) 부하 생성기
+ * 응답을 기다렸다가 다음 요청을 보내는 방식(closed-loop)은 서버가 느려지면 요청도 줄어서 지연이 가려진다.
+ * 여기서는 1/rate 초 간격으로 요청을 보내고, 지연은 실제 전송 시각이 아니라 예정 시각부터 잰다. (coordinated omission 보정)
+ */
+class LoadGenerator {
+    
+    private final HttpClient client;
+    private final String baseUri;
+    private final MemberWorkload workload;
+    private final Duration requestTimeout;
+    
+    LoadGenerator(String baseUri, MemberWorkload workload, Duration requestTimeout) {
+        // 기본값 HTTP_2는 평문 연결마다 h2c 업그레이드를 시도하므로 1.1로 고정한다.
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(requestTimeout)
+            .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2))
+            .build();
+        this.baseUri = baseUri;
+        this.workload = workload;
+        this.requestTimeout = requestTimeout;
+    }
+    
+    /**
+     * @return 엔드포인트별 기록기. "total" 키는 전체 합계
+     */
+    Map<String, LatencyRecorder> run(int ratePerSecond, Duration duration) throws InterruptedException {
+        Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+        LatencyRecorder total = recorders.computeIfAbsent("total", key -> new LatencyRecorder());
+        long periodNanos = 1_000_000_000L / ratePerSecond;
+        long requests = duration.toNanos() / periodNanos;
+        long start = System.nanoTime();
+        AtomicLong sent = new AtomicLong();
+        LongAdder inFlight = new LongAdder();
+        
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(() -> {
+            long sequence = sent.getAndIncrement();
+            if (sequence >= requests) {
+                return;
+            }
+            long intended = start + sequence * periodNanos;
+            MemberWorkload.Request request = workload.next();
+            LatencyRecorder recorder = recorders.computeIfAbsent(request.endpoint, key -> new LatencyRecorder());
+            HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(baseUri + request.pathAndQuery))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+            inFlight.increment();
+            client.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long latency = System.nanoTime() - intended;
+                    if (error == null && response.statusCode() < 400) {
+                        recorder.success(latency);
+                        total.success(latency);
+                    } else {
+                        recorder.error();
+                        total.error();
+                    }
+                    inFlight.decrement();
+                });
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+        
+        while (sent.get() < requests) {
+            Thread.sleep(10);
+        }
+        scheduler.shutdownNow();
+        long deadline = System.nanoTime() + requestTimeout.toNanos();
+        while (inFlight.sum() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return recorders;
+    }
+}
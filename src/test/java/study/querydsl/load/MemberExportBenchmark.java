@@ -0,0 +1,123 @@
+package study.querydsl.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import study.querydsl.dataset.DatasetSnapshots;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.exporter.MemberExportResult;
+import study.querydsl.repository.exporter.MemberExporter;
+
+/**
+ * MemberExporter 를 워커 수 1 ~ N 으로 실행해서 초당 행 수가 워커 수에 따라 얼마나 늘어나는지 잰다.
+ * ./gradlew loadTest --tests '*MemberExportBenchmark'
+ *
+ * 설정 (-Ploadtest.xxx=값)
+ * members(100000), teams(100), workers(8, 최대 워커 수), runs(3, 워커 수마다 반복 횟수. 가장 빠른 값을 쓴다),
+ * partition-size(5000), seed(42)
+ * 워커 수는 커넥션 풀 크기 - 1 로 제한되므로 그보다 크게 재려면 spring.datasource.hikari.maximum-pool-size 도 올린다.
+ * 결과는 build/load-test/export-benchmark.json
+ */
+@Tag("load")
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+    "decorator.datasource.p6spy.enable-logging=false",
+    "logging.level.org.hibernate.SQL=info",
+    "logging.level.org.hibernate.type=info",
+    "member.export.partition-size=${loadtest.partition-size:5000}"
+})
+class MemberExportBenchmark {
+    
+    @Autowired
+    ApplicationContext context;
+    
+    @Autowired
+    ObjectMapper objectMapper;
+    
+    @Autowired
+    MemberExporter memberExporter;
+    
+    @Test
+    public void throughputByWorkers() throws Exception {
+        int members = setting("members", 100_000);
+        int teams = setting("teams", 100);
+        int maxWorkers = setting("workers", 8);
+        int runs = setting("runs", 3);
+        int partitionSize = setting("partition-size", 5000);
+        int seed = setting("seed", 42);
+        Path output = Paths.get(System.getProperty("loadtest.output", "build/load-test"));
+        
+        DatasetSnapshots.from(context).restore(members, teams, seed);
+        Files.createDirectories(output);
+        Path exportFile = output.resolve("export-benchmark.ndjson");
+        MemberSearchCondition condition = new MemberSearchCondition();
+        
+        // 첫 실행은 JIT, 커넥션 풀 워밍업
+        memberExporter.export(condition, maxWorkers, exportFile);
+        
+        List<Map<String, Object>> results = new ArrayList<>();
+        double singleWorker = 0;
+        for (int workers = 1; workers <= maxWorkers; workers++) {
+            MemberExportResult best = null;
+            for (int run = 0; run < runs; run++) {
+                MemberExportResult result = memberExporter.export(condition, workers, exportFile);
+                if (best == null || result.getElapsedMillis() < best.getElapsedMillis()) {
+                    best = result;
+                }
+            }
+            if (workers == 1) {
+                singleWorker = best.getRowsPerSecond();
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requestedWorkers", workers);
+            result.put("workers", best.getWorkers());
+            result.put("rows", best.getRows());
+            result.put("partitions", best.getPartitions());
+            result.put("elapsedMillis", best.getElapsedMillis());
+            result.put("rowsPerSecond", Math.round(best.getRowsPerSecond()));
+            result.put("speedup", singleWorker == 0 ? 0 : best.getRowsPerSecond() / singleWorker);
+            results.add(result);
+            System.out.printf("workers %2d (%2d) %8d ms %12.0f rows/s x%.2f%n", workers, best.getWorkers(),
+                best.getElapsedMillis(), best.getRowsPerSecond(), result.get("speedup"));
+        }
+        Files.deleteIfExists(exportFile);
+        
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("members", members);
+        settings.put("teams", teams);
+        settings.put("workers", maxWorkers);
+        settings.put("runs", runs);
+        settings.put("partitionSize", partitionSize);
+        settings.put("seed", seed);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", LocalDateTime.now().toString());
+        report.put("settings", settings);
+        report.put("results", results);
+        
+        Path file = output.resolve("export-benchmark.json");
+        objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        System.out.println("export benchmark result: " + file.toAbsolutePath());
+        
+        assertThat(results).hasSize(maxWorkers)
+            .extracting(result -> result.get("rows"))
+            .containsOnly((long) members);
+    }
+    
+    private static int setting(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+}
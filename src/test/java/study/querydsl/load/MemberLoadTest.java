@@ -0,0 +1,148 @@
+package study.querydsl.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import study.querydsl.dataset.DatasetSnapshots;
+
+/**
+ * MemberController 부하 테스트 (./gradlew loadTest)
+ * 내장 서버 + 메모리 H2에 데이터를 넣고 /v1, /v2, /v3 요청을 고정 도착률로 보낸다.
+ * 일반 test 태스크에서는 제외된다.
+ *
+ * 설정 (-Ploadtest.xxx=값)
+ * members(10000), teams(100), rate(200, 초당 요청), duration(30, 초), warmup(5, 초), seed(42)
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+    "decorator.datasource.p6spy.enable-logging=false",
+    "logging.level.org.hibernate.SQL=info",
+    "logging.level.org.hibernate.type=info"
+})
+class MemberLoadTest {
+    
+    @LocalServerPort
+    int port;
+    
+    @Autowired
+    ApplicationContext context;
+    
+    @Autowired
+    ObjectMapper objectMapper;
+    
+    @Test
+    public void memberEndpoints() throws Exception {
+        int members = setting("members", 10_000);
+        int teams = setting("teams", 100);
+        int rate = setting("rate", 200);
+        int duration = setting("duration", 30);
+        int warmup = setting("warmup", 5);
+        int seed = setting("seed", 42);
+        Path output = Paths.get(System.getProperty("loadtest.output", "build/load-test"));
+        
+        seed(members, teams, seed);
+        
+        String baseUri = "http://localhost:" + port;
+        Duration requestTimeout = Duration.ofSeconds(10);
+        if (warmup > 0) {
+            new LoadGenerator(baseUri, new MemberWorkload(seed, teams, members / 20), requestTimeout)
+                .run(rate, Duration.ofSeconds(warmup));
+        }
+        LoadGenerator generator = new LoadGenerator(baseUri, new MemberWorkload(seed, teams, members / 20),
+            requestTimeout);
+        long start = System.nanoTime();
+        Map<String, LatencyRecorder> recorders = generator.run(rate, Duration.ofSeconds(duration));
+        long elapsed = System.nanoTime() - start;
+        
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("members", members);
+        settings.put("teams", teams);
+        settings.put("rate", rate);
+        settings.put("duration", duration);
+        settings.put("seed", seed);
+        Map<String, Object> endpoints = new TreeMap<>();
+        recorders.forEach((endpoint, recorder) -> endpoints.put(endpoint, recorder.summary(elapsed)));
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", LocalDateTime.now().toString());
+        report.put("settings", settings);
+        report.put("endpoints", endpoints);
+        
+        JsonNode result = save(report, output);
+        compareWithBaseline(result, output.resolve("baseline.json"));
+        
+        assertThat(result.at("/endpoints/total/requests").asLong()).isPositive();
+    }
+    
+    /**
+     * 같은 크기로 처음 실행할 때만 데이터를 만들고 이후에는 스냅샷에서 복원한다.
+     */
+    private void seed(int members, int teams, long seed) {
+        DatasetSnapshots.from(context).restore(members, teams, seed);
+    }
+    
+    private JsonNode save(Map<String, Object> report, Path output) throws Exception {
+        Files.createDirectories(output);
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = output.resolve("result-" + timestamp + ".json");
+        objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        Files.copy(file, output.resolve("latest.json"), StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("load test result: " + file.toAbsolutePath());
+        System.out.println(Files.readString(file));
+        return objectMapper.readTree(file.toFile());
+    }
+    
+    /**
+     * 기준 결과(baseline.json)가 있으면 엔드포인트별 p99, 처리량, 오류율 변화를 출력한다.
+     * latest.json을 baseline.json으로 복사하면 다음 실행부터 기준이 된다.
+     */
+    private void compareWithBaseline(JsonNode result, Path baselineFile) throws Exception {
+        if (!Files.exists(baselineFile)) {
+            return;
+        }
+        JsonNode baseline = objectMapper.readTree(baselineFile.toFile());
+        System.out.println("compared with " + baselineFile.toAbsolutePath());
+        result.get("endpoints").fieldNames().forEachRemaining(endpoint -> {
+            JsonNode now = result.get("endpoints").get(endpoint);
+            JsonNode before = baseline.path("endpoints").path(endpoint);
+            if (before.isMissingNode()) {
+                return;
+            }
+            System.out.printf("%-6s p99 %8.2fms -> %8.2fms (%+.1f%%)  throughput %8.1f -> %8.1f (%+.1f%%)"
+                    + "  errorRate %.4f -> %.4f%n",
+                endpoint,
+                before.get("p99Millis").asDouble(), now.get("p99Millis").asDouble(),
+                change(before.get("p99Millis").asDouble(), now.get("p99Millis").asDouble()),
+                before.get("throughput").asDouble(), now.get("throughput").asDouble(),
+                change(before.get("throughput").asDouble(), now.get("throughput").asDouble()),
+                before.get("errorRate").asDouble(), now.get("errorRate").asDouble());
+        });
+    }
+    
+    private static double change(double before, double now) {
+        return before == 0 ? 0 : (now - before) * 100 / before;
+    }
+    
+    private static int setting(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,137 @@
+package study.querydsl.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dataset.DatasetSnapshots;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.sql.MemberSqlRepository;
+
+/**
+ * 같은 검색을 JPA 경로(MemberRepository)와 querydsl-sql 경로(MemberSqlRepository)로 각각 실행해서 지연 시간을 비교한다.
+ * HTTP 없이 리포지토리를 직접 호출하므로 차이는 JPQL 변환, HQL 파싱, 결과 매핑 비용이다.
+ * ./gradlew loadTest --tests '*MemberSearchBenchmark'
+ *
+ * 설정 (-Ploadtest.xxx=값)
+ * members(10000), teams(100), iterations(500), warmup(200), seed(42)
+ * 결과는 build/load-test/search-benchmark.json
+ */
+@Tag("load")
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+    "decorator.datasource.p6spy.enable-logging=false",
+    "logging.level.org.hibernate.SQL=info",
+    "logging.level.org.hibernate.type=info"
+})
+class MemberSearchBenchmark {
+    
+    @Autowired
+    ApplicationContext context;
+    
+    @Autowired
+    ObjectMapper objectMapper;
+    
+    @Autowired
+    MemberRepository memberRepository;
+    
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+    
+    @Test
+    public void jpaVersusSql() throws Exception {
+        int members = setting("members", 10_000);
+        int teams = setting("teams", 100);
+        int iterations = setting("iterations", 500);
+        int warmup = setting("warmup", 200);
+        int seed = setting("seed", 42);
+        Path output = Paths.get(System.getProperty("loadtest.output", "build/load-test"));
+        
+        DatasetSnapshots.from(context).restore(members, teams, seed);
+        
+        MemberSearchCondition byTeam = new MemberSearchCondition();
+        byTeam.setTeamName("team" + (teams / 2));
+        MemberSearchCondition byAge = new MemberSearchCondition();
+        byAge.setAgeGoe(20);
+        byAge.setAgeLoe(40);
+        MemberSearchCondition none = new MemberSearchCondition();
+        
+        Map<String, Consumer<MemberRepositoryCustom>> searches = new LinkedHashMap<>();
+        searches.put("search(teamName)", repository -> repository.search(byTeam));
+        searches.put("searchPageSimple(age, page 0)",
+            repository -> repository.searchPageSimple(byAge, PageRequest.of(0, 20)));
+        searches.put("searchPageComplex(none, page 10)",
+            repository -> repository.searchPageComplex(none, PageRequest.of(10, 20)));
+        searches.put("searchPageComplex(teamName, page 0)",
+            repository -> repository.searchPageComplex(byTeam, PageRequest.of(0, 20)));
+        
+        Map<String, Object> results = new LinkedHashMap<>();
+        searches.forEach((name, search) -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("jpa", measure(memberRepository, search, warmup, iterations));
+            result.put("sql", measure(memberSqlRepository, search, warmup, iterations));
+            results.put(name, result);
+            System.out.printf("%-36s jpa %s%n%-36s sql %s%n", name, result.get("jpa"), "", result.get("sql"));
+        });
+        
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("members", members);
+        settings.put("teams", teams);
+        settings.put("iterations", iterations);
+        settings.put("warmup", warmup);
+        settings.put("seed", seed);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", LocalDateTime.now().toString());
+        report.put("settings", settings);
+        report.put("searches", results);
+        
+        Files.createDirectories(output);
+        Path file = output.resolve("search-benchmark.json");
+        objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        System.out.println("search benchmark result: " + file.toAbsolutePath());
+        
+        assertThat(results).hasSize(searches.size());
+    }
+    
+    /**
+     * 두 경로를 번갈아 재지 않고 경로별로 워밍업 후 연속 실행한다. (μs)
+     */
+    private static Map<String, Object> measure(MemberRepositoryCustom repository,
+        Consumer<MemberRepositoryCustom> search, int warmup, int iterations) {
+        for (int i = 0; i < warmup; i++) {
+            search.accept(repository);
+        }
+        long[] micros = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            search.accept(repository);
+            micros[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(micros);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("meanMicros", Arrays.stream(micros).average().orElse(0));
+        summary.put("p50Micros", micros[iterations / 2]);
+        summary.put("p99Micros", micros[Math.min(iterations - 1, iterations * 99 / 100)]);
+        return summary;
+    }
+    
+    private static int setting(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+}
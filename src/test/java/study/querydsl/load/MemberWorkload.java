@@ -0,0 +1,70 @@
+package study.querydsl.load;
+
+import java.util.Random;
+
+/**
+ * /v1, /v2, /v3 회원 검색 요청 혼합
+ * 같은 seed면 같은 요청 순서가 나오므로 실행 결과끼리 비교할 수 있다.
+ *
+ * 1. 엔드포인트: v1 20%, v2 40%, v3 40%
+ * 2. 검색 조건: teamName, ageGoe/ageLoe, usernamePrefix 를 각각 독립적으로 섞는다.
+ * 3. 페이지 깊이: 대부분 앞쪽 페이지이고 일부는 maxPage 까지 깊은 페이지를 요청한다.
+ */
+class MemberWorkload {
+    
+    static class Request {
+        
+        final String endpoint;
+        final String pathAndQuery;
+        
+        Request(String endpoint, String pathAndQuery) {
+            this.endpoint = endpoint;
+            this.pathAndQuery = pathAndQuery;
+        }
+    }
+    
+    private final Random random;
+    private final int teams;
+    private final int maxPage;
+    
+    MemberWorkload(long seed, int teams, int maxPage) {
+        this.random = new Random(seed);
+        this.teams = teams;
+        this.maxPage = maxPage;
+    }
+    
+    synchronized Request next() {
+        int roll = random.nextInt(10);
+        String endpoint = roll < 2 ? "v1" : roll < 6 ? "v2" : "v3";
+        
+        StringBuilder query = new StringBuilder();
+        if (random.nextInt(10) < 5) {
+            query.append("&teamName=team").append(random.nextInt(teams));
+        }
+        if (random.nextInt(10) < 3) {
+            int from = random.nextInt(80);
+            query.append("&ageGoe=").append(from).append("&ageLoe=").append(from + 1 + random.nextInt(20));
+        }
+        if (random.nextInt(10) < 2) {
+            query.append("&usernamePrefix=member").append(1 + random.nextInt(9)).append(random.nextInt(10));
+        }
+        if (!endpoint.equals("v1")) {
+            query.append("&size=20&page=").append(page());
+        } else if (query.length() == 0) {
+            // v1은 페이징이 없으므로 조건 없이 전체를 가져오지 않도록 팀 하나로 제한한다.
+            query.append("&teamName=team").append(random.nextInt(teams));
+        }
+        return new Request(endpoint, "/" + endpoint + "/members?" + query.substring(1));
+    }
+    
+    private int page() {
+        int roll = random.nextInt(100);
+        if (roll < 70) {
+            return random.nextInt(3);
+        }
+        if (roll < 95) {
+            return random.nextInt(Math.max(1, maxPage / 10));
+        }
+        return random.nextInt(Math.max(1, maxPage));
+    }
+}
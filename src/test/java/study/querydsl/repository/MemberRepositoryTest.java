@@ -12,10 +12,12 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.index.UsernamePrefixIndex;
 
 @SpringBootTest
 @Transactional
@@ -27,6 +29,9 @@ public class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
     
+    @Autowired
+    UsernamePrefixIndex usernamePrefixIndex;
+    
     @Test
     public void basicTest() {
         Member member = new Member("member1", 10);
@@ -94,6 +99,72 @@ public class MemberRepositoryTest {
             .containsExactly("member1", "member2", "member3");
     }
     
+    /**
+     * usernamePrefix
+     * flush 이후에는 인덱스가 prefix를 id 목록으로 바꿔 member.id in (...) 으로 조회한다.
+     * flush 전에는 like 조회로 대체된다.
+     */
+    @Test
+    public void searchUsernamePrefixTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        
+        Member member1 = new Member("kim1", 10, teamA);
+        Member member2 = new Member("kim2", 20, teamA);
+        Member member3 = new Member("lee1", 30, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("kim");
+        
+        assertThat(usernamePrefixIndex.lookup("kim")).isEmpty();
+        assertThat(memberRepository.search(condition)).extracting("username")
+            .containsExactlyInAnyOrder("kim1", "kim2");
+        
+        em.flush();
+        
+        assertThat(usernamePrefixIndex.lookup("kim")).hasValueSatisfying(ids ->
+            assertThat(ids).contains(member1.getId(), member2.getId()).doesNotContain(member3.getId()));
+        assertThat(memberRepository.search(condition)).extracting("username")
+            .containsExactlyInAnyOrder("kim1", "kim2");
+        
+        member2.setUsername("park2");
+        em.flush();
+        
+        assertThat(memberRepository.search(condition)).extracting("username")
+            .containsExactly("kim1");
+    }
+    
+    @Test
+    public void searchColumnsTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 40; i++) {
+            em.persist(new Member("columns" + i, i, i % 10 == 0 ? null : (i % 2 == 0 ? teamA : teamB)));
+        }
+        
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("columns");
+        
+        MemberTeamColumns columns = memberRepository.searchColumns(condition);
+        
+        assertThat(columns.size()).isEqualTo(40);
+        assertThat(columns.teamCount()).isEqualTo(2);
+        assertThat(columns.toDtos())
+            .usingFieldByFieldElementComparator()
+            .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+        assertThat(columns.get(0).getTeamId()).isNull();
+        assertThat(columns.get(1).getTeamName()).isEqualTo("teamB");
+        assertThat(columns.get(2).getTeamName()).isEqualTo("teamA");
+        for (int i = 1; i < columns.size(); i++) {
+            assertThat(columns.memberId(i)).isGreaterThan(columns.memberId(i - 1));
+        }
+    }
+    
     /**
      * Predicate
      * querydsl의 where조건을 바로 Jpa에서 사용할 수 있다.
@@ -0,0 +1,125 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Objects;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 지연 로딩 배치 조회
+ * 팀 20개, 회원 60명일 때 회원마다 팀 프록시를 초기화해도 쿼리 수는 회원 수가 아니라 팀 수 / 배치 크기에 비례해야 한다.
+ */
+@SpringBootTest
+@Transactional
+class MemberTestRepositoryTest {
+    
+    static final int TEAM_COUNT = 20;
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    EntityManagerFactory emf;
+    
+    @Autowired
+    MemberTestRepository memberTestRepository;
+    
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    
+    Statistics statistics;
+    
+    @BeforeEach
+    void before() {
+        for (int i = 0; i < TEAM_COUNT; i++) {
+            Team team = new Team("batchTeam" + i);
+            em.persist(team);
+            for (int j = 0; j < 3; j++) {
+                em.persist(new Member("batchMember" + i + "_" + j, j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+        
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+    
+    @Test
+    public void defaultBatchFetchSize() {
+        List<Member> members = memberJpaRepository.findAll_Querydsl();
+        long afterSelect = statistics.getPrepareStatementCount();
+        
+        members.stream().map(Member::getTeam).filter(Objects::nonNull).forEach(Team::getName);
+        
+        // default_batch_fetch_size: 100 이면 팀 20개는 in 쿼리 한 번
+        assertThat(statistics.getPrepareStatementCount() - afterSelect).isEqualTo(1);
+    }
+    
+    @Test
+    public void batchSizePerQuery() {
+        List<Member> members = memberTestRepository.basicSelectWithTeam(7);
+        
+        // 회원 조회 1 + 팀을 7개씩 in 쿼리 (다른 테스트가 커밋한 팀이 있을 수 있어 실제 팀 수로 계산)
+        long teamCount = members.stream().map(Member::getTeam).filter(Objects::nonNull).distinct().count();
+        long expected = 1 + (teamCount + 6) / 7;
+        assertThat(teamCount).isGreaterThanOrEqualTo(TEAM_COUNT);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(expected);
+        
+        members.forEach(m -> {
+            if (m.getTeam() != null) {
+                m.getTeam().getName();
+            }
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(expected);
+    }
+    
+    @Test
+    public void teamMembersBatchFetch() {
+        List<Team> teams = em.createQuery("select t from Team t where t.name like 'batchTeam%'", Team.class)
+            .getResultList();
+        long afterSelect = statistics.getPrepareStatementCount();
+        
+        teams.forEach(t -> assertThat(t.getMembers()).hasSize(3));
+        
+        assertThat(statistics.getPrepareStatementCount() - afterSelect).isEqualTo(1);
+    }
+    
+    /**
+     * 조회 전용으로 가져온 엔티티는 스냅샷이 없어서 변경해도 update 쿼리가 나가지 않는다.
+     */
+    @Test
+    public void readOnlySearch() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("batchMember1_");
+        
+        Page<Member> result = memberTestRepository.applyPagination(condition, PageRequest.of(0, 10));
+        List<Member> all = memberTestRepository.basicSelect();
+        
+        Session session = em.unwrap(Session.class);
+        assertThat(result.getContent()).hasSize(3)
+            .allMatch(session::isReadOnly);
+        assertThat(all).allMatch(session::isReadOnly);
+        
+        result.getContent().get(0).setAge(99);
+        em.flush();
+        
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+    }
+}
@@ -0,0 +1,136 @@
+package study.querydsl.repository.advisor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.advisor.IndexAdvisor.Recommendation;
+
+@SpringBootTest
+class IndexAdvisorTest {
+    
+    @Autowired
+    SearchWorkload searchWorkload;
+    
+    @Autowired
+    IndexAdvisor indexAdvisor;
+    
+    @Autowired
+    MemberRepository memberRepository;
+    
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    
+    @BeforeEach
+    void before() {
+        searchWorkload.reset();
+    }
+    
+    @AfterEach
+    void after() {
+        jdbcTemplate.execute("drop index if exists idx_member_username");
+        searchWorkload.reset();
+    }
+    
+    @Test
+    public void recordsShapes() {
+        MemberSearchCondition byName = new MemberSearchCondition();
+        byName.setUsername("member1");
+        memberRepository.search(byName);
+        byName.setUsername("member2");
+        memberJpaRepository.search(byName);
+        
+        MemberSearchCondition byTeamAndAge = new MemberSearchCondition();
+        byTeamAndAge.setTeamName("teamA");
+        byTeamAndAge.setAgeGoe(10);
+        memberRepository.searchPageComplex(byTeamAndAge, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "age")));
+        
+        assertThat(searchWorkload.snapshot())
+            .extracting(stats -> stats.getShape().toString(), SearchWorkload.ShapeStats::getCount)
+            .containsExactlyInAnyOrder(
+                org.assertj.core.groups.Tuple.tuple("username", 2L),
+                org.assertj.core.groups.Tuple.tuple("ageGoe, teamName order by age DESC", 1L));
+    }
+    
+    @Test
+    public void recommendsUncoveredIndexes() {
+        MemberSearchCondition byName = new MemberSearchCondition();
+        byName.setUsername("member1");
+        memberRepository.search(byName);
+        
+        MemberSearchCondition byTeamAndAge = new MemberSearchCondition();
+        byTeamAndAge.setTeamName("teamA");
+        byTeamAndAge.setAgeLoe(30);
+        memberRepository.search(byTeamAndAge);
+        
+        IndexAdvisor.Advice advice = indexAdvisor.advise(true);
+        assertThat(advice.getShapes()).allMatch(shape -> shape.getPlan() != null);
+        Optional<Recommendation> username = find(advice, "member", "username");
+        assertThat(username).isPresent();
+        assertThat(username.get().getDdl())
+            .isEqualTo("create index if not exists idx_member_username on member (username)");
+        assertThat(username.get().getExpectedSavingMillis()).isPositive();
+        // member 는 team_id FK 인덱스로 찾으므로 team 쪽 전체 스캔만 추천 대상이다.
+        assertThat(advice.getShapes())
+            .filteredOn(shape -> shape.getShape().equals("ageLoe, teamName"))
+            .flatExtracting(IndexAdvisor.ShapeReport::getCandidates)
+            .containsExactly("member(team_id, age)", "team(name)");
+        assertThat(find(advice, "team", "name")).isPresent();
+        
+        jdbcTemplate.execute(username.get().getDdl());
+        IndexAdvisor.Advice afterIndex = indexAdvisor.advise(false);
+        assertThat(find(afterIndex, "member", "username")).isEmpty();
+        assertThat(afterIndex.getRecommendations()).allMatch(r -> r.getDdl() == null);
+    }
+    
+    @Test
+    public void candidateColumns() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("mem");
+        condition.setAgeGoe(10);
+        assertThat(IndexAdvisor.candidates(SearchWorkload.Shape.of(condition, Sort.unsorted())))
+            .extracting(Object::toString)
+            .containsExactly("member(username)");
+        
+        MemberSearchCondition sortOnly = new MemberSearchCondition();
+        assertThat(IndexAdvisor.candidates(SearchWorkload.Shape.of(sortOnly, Sort.by("age"))))
+            .extracting(Object::toString)
+            .containsExactly("member(age)");
+        assertThat(IndexAdvisor.candidates(SearchWorkload.Shape.of(sortOnly, Sort.unsorted()))).isEmpty();
+    }
+    
+    /**
+     * 정렬은 클라이언트가 보낸 값이므로 알려지지 않은 속성과 중복 속성은 모양에 넣지 않는다.
+     */
+    @Test
+    public void unknownSortPropertiesDoNotAddShapes() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        for (int i = 0; i < 100; i++) {
+            searchWorkload.record(condition, PageRequest.of(0, 10, Sort.by("unknown" + i)), 1000);
+            searchWorkload.record(condition, PageRequest.of(0, 10, Sort.by("age", "unknown" + i, "age")), 1000);
+        }
+        
+        assertThat(searchWorkload.snapshot())
+            .extracting(stats -> stats.getShape().toString())
+            .containsExactlyInAnyOrder("(none)", "(none) order by age ASC");
+    }
+    
+    private Optional<Recommendation> find(IndexAdvisor.Advice advice, String table, String... columns) {
+        return advice.getRecommendations().stream()
+            .filter(r -> r.getTable().equals(table) && r.getColumns().equals(java.util.Arrays.asList(columns)))
+            .findFirst();
+    }
+}
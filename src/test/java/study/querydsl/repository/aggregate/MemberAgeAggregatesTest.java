@@ -0,0 +1,165 @@
+package study.querydsl.repository.aggregate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.writebehind.MemberAgeWriteBehind;
+
+/**
+ * 캐시는 커밋된 데이터만 보므로 이 테스트는 트랜잭션 없이 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest
+class MemberAgeAggregatesTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    MemberAgeAggregates memberAgeAggregates;
+    
+    @Autowired
+    MemberAgeWriteBehind memberAgeWriteBehind;
+    
+    Long teamAId;
+    
+    @BeforeEach
+    void before() {
+        teamAId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("aggTeamA");
+            Team teamB = new Team("aggTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            
+            em.persist(new Member("agg1", 10, teamA));
+            em.persist(new Member("agg2", 20, teamA));
+            em.persist(new Member("agg3", 30, teamB));
+            em.persist(new Member("agg4", 400, teamB));
+            em.persist(new Member("agg5", 500));
+            return teamA.getId();
+        });
+    }
+    
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("agg")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("aggTeam")).execute();
+        });
+    }
+    
+    @Test
+    public void sameResultAsSubQuery() {
+        QMember memberSub = new QMember("memberSub");
+        
+        Expression<Integer> maxAge = memberAgeAggregates.maxAge();
+        assertThat(maxAge).isInstanceOf(Constant.class);
+        assertThat(fetchAgesEq(maxAge))
+            .isEqualTo(fetchAgesEq(JPAExpressions.select(memberSub.age.max()).from(memberSub)))
+            .contains(500);
+        
+        assertThat(fetchAgesEq(memberAgeAggregates.minAge()))
+            .isEqualTo(fetchAgesEq(JPAExpressions.select(memberSub.age.min()).from(memberSub)));
+        
+        assertThat(((Constant<?>) memberAgeAggregates.maxAge(teamAId)).getConstant()).isEqualTo(20);
+        assertThat(((Constant<?>) memberAgeAggregates.minAge(teamAId)).getConstant()).isEqualTo(10);
+        
+        Long count = transactionTemplate.execute(status ->
+            queryFactory.select(member.count()).from(member).fetchOne());
+        assertThat(memberAgeAggregates.global()).hasValueSatisfying(stats -> {
+            assertThat(stats.getCount()).isEqualTo(count);
+            assertThat(stats.getMax()).isGreaterThanOrEqualTo(500);
+        });
+        assertThat(memberAgeAggregates.team(teamAId)).hasValueSatisfying(stats -> {
+            assertThat(stats.getCount()).isEqualTo(2);
+            assertThat(stats.getAvg()).isEqualTo(15.0);
+        });
+    }
+    
+    @Test
+    public void recomputedAfterCommit() {
+        assertThat(memberAgeAggregates.team(teamAId)).hasValueSatisfying(stats ->
+            assertThat(stats.getMax()).isEqualTo(20));
+        
+        transactionTemplate.executeWithoutResult(status ->
+            em.persist(new Member("agg6", 60, em.find(Team.class, teamAId))));
+        
+        assertThat(memberAgeAggregates.team(teamAId)).hasValueSatisfying(stats -> {
+            assertThat(stats.getMax()).isEqualTo(60);
+            assertThat(stats.getCount()).isEqualTo(3);
+        });
+    }
+    
+    /**
+     * write-behind flush는 합계만 바꾸므로 전체 count, avg는 커밋 후 증감값을 더해서 유지한다.
+     */
+    @Test
+    public void totalsFollowWriteBehindFlush() {
+        assertThat(memberAgeAggregates.memberCount()).isPresent();
+        List<Long> ids = transactionTemplate.execute(status -> queryFactory
+            .select(member.id)
+            .from(member)
+            .where(member.username.in("agg1", "agg5"))
+            .fetch());
+        memberAgeWriteBehind.increment(ids.get(0), 5);
+        memberAgeWriteBehind.increment(ids.get(1), 7);
+        memberAgeWriteBehind.flush();
+        
+        QMember memberSub = new QMember("memberSub");
+        Double avg = transactionTemplate.execute(status ->
+            queryFactory.select(memberSub.age.avg()).from(memberSub).fetchOne());
+        Long count = transactionTemplate.execute(status ->
+            queryFactory.select(member.count()).from(member).fetchOne());
+        
+        Expression<Double> avgAge = memberAgeAggregates.avgAge();
+        assertThat(avgAge).isInstanceOf(Constant.class);
+        assertThat((Double) ((Constant<?>) avgAge).getConstant()).isCloseTo(avg, within(0.0001));
+        assertThat(memberAgeAggregates.memberCount()).contains(count);
+    }
+    
+    @Test
+    public void subQueryWhenCurrentTransactionWrote() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("agg7", 9999));
+            em.flush();
+            
+            Expression<Integer> maxAge = memberAgeAggregates.maxAge();
+            assertThat(maxAge).isNotInstanceOf(Constant.class);
+            assertThat(queryFactory.select(member.age).from(member).where(member.age.eq(maxAge)).fetch())
+                .containsExactly(9999);
+            status.setRollbackOnly();
+        });
+        
+        assertThat(memberAgeAggregates.maxAge()).isInstanceOf(Constant.class);
+    }
+    
+    private List<Integer> fetchAgesEq(Expression<Integer> age) {
+        return transactionTemplate.execute(status -> queryFactory
+            .select(member.age)
+            .from(member)
+            .where(member.age.eq(age))
+            .fetch());
+    }
+}
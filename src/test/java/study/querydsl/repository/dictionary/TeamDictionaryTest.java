@@ -0,0 +1,133 @@
+package study.querydsl.repository.dictionary;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * 사전은 커밋된 데이터만 보므로 이 테스트는 트랜잭션 없이 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest
+class TeamDictionaryTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    TeamDictionary teamDictionary;
+    
+    @Autowired
+    MemberRepository memberRepository;
+    
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    
+    Long teamAId;
+    
+    @BeforeEach
+    void before() {
+        teamAId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("dictTeamA");
+            Team teamB = new Team("dictTeamB");
+            Team teamB2 = new Team("dictTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(teamB2);
+            
+            em.persist(new Member("dict1", 10, teamA));
+            em.persist(new Member("dict2", 20, teamB));
+            em.persist(new Member("dict3", 30, teamB2));
+            em.persist(new Member("dict4", 40));
+            return teamA.getId();
+        });
+    }
+    
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("dict")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("dictTeam")).execute();
+        });
+    }
+    
+    @Test
+    public void sameResultAsJoin() {
+        assertThat(teamDictionary.current()).isPresent();
+        assertThat(teamDictionary.current().get().idsOf("dictTeamB")).hasSize(2);
+        
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("dict");
+        assertSameAsJoin(condition, 4);
+        
+        condition.setTeamName("dictTeamB");
+        assertSameAsJoin(condition, 2);
+        
+        condition.setTeamName("dictTeamNone");
+        assertSameAsJoin(condition, 0);
+        
+        condition.setTeamName("dictTeamA");
+        Page<MemberTeamDto> page = memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getContent()).extracting("teamName").containsExactly("dictTeamA");
+    }
+    
+    @Test
+    public void followsCommittedRename() {
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamAId).setName("dictTeamRenamed"));
+        
+        assertThat(teamDictionary.current().get().nameOf(teamAId)).isEqualTo("dictTeamRenamed");
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("dictTeamRenamed");
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("dict1");
+    }
+    
+    @Test
+    public void fallsBackInsideWritingTransaction() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.find(Team.class, teamAId).setName("dictTeamUncommitted");
+            assertThat(teamDictionary.current()).isEmpty();
+            
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("dictTeamUncommitted");
+            assertThat(memberJpaRepository.search(condition)).extracting("username").containsExactly("dict1");
+            status.setRollbackOnly();
+        });
+        
+        assertThat(teamDictionary.current().get().nameOf(teamAId)).isEqualTo("dictTeamA");
+    }
+    
+    private void assertSameAsJoin(MemberSearchCondition condition, int expectedSize) {
+        List<MemberTeamDto> joined = memberJpaRepository.searchByBuilder(condition);
+        assertThat(joined).hasSize(expectedSize);
+        assertThat(memberJpaRepository.search(condition))
+            .usingFieldByFieldElementComparator()
+            .containsExactlyInAnyOrderElementsOf(joined);
+        assertThat(memberRepository.search(condition))
+            .usingFieldByFieldElementComparator()
+            .containsExactlyInAnyOrderElementsOf(joined);
+    }
+}
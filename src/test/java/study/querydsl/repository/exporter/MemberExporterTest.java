@@ -0,0 +1,116 @@
+package study.querydsl.repository.exporter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 구간마다 다른 커넥션에서 읽으므로 이 테스트는 트랜잭션 없이 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest(properties = "member.export.partition-size=7")
+class MemberExporterTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    ObjectMapper objectMapper;
+    
+    @Autowired
+    MemberExporter memberExporter;
+    
+    @TempDir
+    Path dir;
+    
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("expTeamA");
+            Team teamB = new Team("expTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 50; i++) {
+                em.persist(new Member("exp" + i, i, i % 3 == 0 ? null : i % 3 == 1 ? teamA : teamB));
+            }
+        });
+    }
+    
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("exp")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("expTeam")).execute();
+        });
+    }
+    
+    @Test
+    public void sameOutputForAnyWorkerCount() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("exp");
+        
+        Path single = dir.resolve("members-1.ndjson");
+        MemberExportResult singleResult = memberExporter.export(condition, 1, single);
+        assertThat(singleResult.getRows()).isEqualTo(50);
+        assertThat(singleResult.getPartitions()).isGreaterThan(1);
+        
+        for (int workers = 2; workers <= 4; workers++) {
+            Path parallel = dir.resolve("members-" + workers + ".ndjson");
+            MemberExportResult result = memberExporter.export(condition, workers, parallel);
+            
+            assertThat(result.getRows()).isEqualTo(50);
+            assertThat(result.getWorkers()).isEqualTo(workers);
+            assertThat(Files.readAllLines(parallel)).isEqualTo(Files.readAllLines(single));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files).extracting(path -> path.getFileName().toString())
+                .allMatch(name -> name.endsWith(".ndjson"));
+        }
+        
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : Files.readAllLines(single, StandardCharsets.UTF_8)) {
+            rows.add(objectMapper.readTree(line));
+        }
+        assertThat(rows).extracting(row -> row.get("memberId").asLong()).isSorted();
+        assertThat(rows).filteredOn(row -> row.get("username").asText().equals("exp1"))
+            .extracting(row -> row.get("teamName").asText()).containsExactly("expTeamA");
+    }
+    
+    @Test
+    public void workerCountIsBoundedByPool() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("exp");
+        
+        MemberExportResult result = memberExporter.export(condition, 100, dir.resolve("members.ndjson"));
+        
+        // 기본 hikari maximum-pool-size 10, 요청 처리용으로 하나를 남긴다
+        assertThat(result.getWorkers()).isEqualTo(9);
+        assertThat(result.getRows()).isEqualTo(50);
+    }
+}
@@ -0,0 +1,143 @@
+package study.querydsl.repository.hot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * 메모리 계층은 커밋된 데이터만 보므로 이 테스트는 트랜잭션 없이 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest(properties = "member.hot-tier.enabled=true")
+class MemberHotTierTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    MemberHotTier memberHotTier;
+    
+    @Autowired
+    MemberRepository memberRepository;
+    
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("hotTeamA");
+            Team teamB = new Team("hotTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            
+            em.persist(new Member("hot1", 10, teamA));
+            em.persist(new Member("hot2", 20, teamA));
+            em.persist(new Member("hot3", 30, teamB));
+            em.persist(new Member("hot4", 40, teamB));
+            em.persist(new Member("hot5", 50));
+        });
+        memberHotTier.refresh();
+    }
+    
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("hot")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("hotTeam")).execute();
+        });
+    }
+    
+    @Test
+    public void searchInMemory() {
+        Optional<List<MemberTeamDto>> result = memberHotTier.search(
+            team.name.eq("hotTeamB"), member.age.goe(35));
+        
+        assertThat(result).hasValueSatisfying(found ->
+            assertThat(found).extracting("username").containsExactly("hot4"));
+    }
+    
+    @Test
+    public void sameResultAsJpa() {
+        MemberSearchCondition prefixAge = new MemberSearchCondition();
+        prefixAge.setUsernamePrefix("hot");
+        prefixAge.setAgeGoe(20);
+        
+        MemberSearchCondition teamName = new MemberSearchCondition();
+        teamName.setTeamName("hotTeamB");
+        
+        assertThat(memberHotTier.isAvailable()).isTrue();
+        List<List<MemberTeamDto>> hot = search(prefixAge, teamName);
+        
+        assertThat(hot.get(0)).extracting("username").containsExactly("hot2", "hot3", "hot4", "hot5");
+        assertThat(hot.get(0)).extracting("teamName").containsExactly("hotTeamA", "hotTeamB", "hotTeamB", null);
+        assertThat(hot.get(2)).extracting("username").containsExactly("hot5");
+        
+        // 같은 트랜잭션에서 Team을 변경하면 메모리 계층을 건너뛰고 JPA로 조회한다
+        List<List<MemberTeamDto>> jpa = transactionTemplate.execute(status -> {
+            em.persist(new Team("hotTeamC"));
+            em.flush();
+            assertThat(memberHotTier.search(member.username.startsWith("hot"))).isEmpty();
+            status.setRollbackOnly();
+            return search(prefixAge, teamName);
+        });
+        
+        assertThat(jpa).hasSameSizeAs(hot);
+        for (int i = 0; i < hot.size(); i++) {
+            assertThat(jpa.get(i)).usingFieldByFieldElementComparator().containsExactlyElementsOf(hot.get(i));
+        }
+    }
+    
+    @Test
+    public void staleAfterChange() {
+        transactionTemplate.executeWithoutResult(status ->
+            em.persist(new Member("hot6", 60)));
+        
+        assertThat(memberHotTier.isAvailable()).isFalse();
+        assertThat(memberHotTier.search(member.username.eq("hot6"))).isEmpty();
+        
+        memberHotTier.refresh();
+        
+        assertThat(memberHotTier.search(member.username.eq("hot6"))).hasValueSatisfying(found ->
+            assertThat(found).extracting("age").containsExactly(60));
+    }
+    
+    /**
+     * 전체 조회, 페이지 조회(simple, complex) 결과와 페이지의 전체 건수를 모은다.
+     */
+    private List<List<MemberTeamDto>> search(MemberSearchCondition... conditions) {
+        List<List<MemberTeamDto>> results = new ArrayList<>();
+        for (MemberSearchCondition condition : conditions) {
+            List<MemberTeamDto> all = memberRepository.search(condition);
+            Page<MemberTeamDto> simple = memberRepository.searchPageSimple(condition, PageRequest.of(1, 3));
+            Page<MemberTeamDto> complex = memberRepository.searchPageComplex(condition, PageRequest.of(1, 3));
+            assertThat(simple.getTotalElements()).isEqualTo(complex.getTotalElements()).isEqualTo(all.size());
+            
+            results.add(all);
+            results.add(simple.getContent());
+            results.add(complex.getContent());
+        }
+        return results;
+    }
+}
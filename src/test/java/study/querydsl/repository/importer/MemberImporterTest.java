@@ -0,0 +1,109 @@
+package study.querydsl.repository.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Team;
+
+/**
+ * 배치마다 커밋하므로 이 테스트는 트랜잭션 없이 실행하고 끝나면 지운다.
+ */
+@SpringBootTest(properties = "member.import.batch-size=2")
+class MemberImporterTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    MemberImporter memberImporter;
+    
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("imp")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("impTeam")).execute();
+        });
+    }
+    
+    @Test
+    public void importCsv() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Team("impTeamA")));
+        
+        String csv = "teamName,username,age\n"
+            + "impTeamA,imp1,10\n"
+            + "impTeamB,imp2,20\n"
+            + "\"impTeam,C\",\"imp3\",30\n"
+            + ",imp4,\n"
+            + "impTeamA,imp5,abc\n"
+            + "impTeamB,,50\n"
+            + "impTeamB,imp7\n";
+        
+        MemberImportResult result = memberImporter.importMembers(stream(csv), MemberImporter.Format.CSV);
+        
+        assertThat(result.getAccepted()).isEqualTo(4);
+        assertThat(result.getBatches()).isEqualTo(2);
+        assertThat(result.getTeamsCreated()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(result.getRejectedRows()).extracting("line").containsExactly(6L, 7L, 8L);
+        
+        assertThat(imported()).extracting(t -> t.get(member.username), t -> t.get(member.age), t -> t.get(team.name))
+            .containsExactly(
+                tuple("imp1", 10, "impTeamA"),
+                tuple("imp2", 20, "impTeamB"),
+                tuple("imp3", 30, "impTeam,C"),
+                tuple("imp4", 0, null));
+    }
+    
+    @Test
+    public void importNdjson() throws Exception {
+        String ndjson = "{\"username\":\"imp1\",\"age\":10,\"teamName\":\"impTeamA\"}\n"
+            + "{\"username\":\"imp2\",\"age\":20,\"teamName\":\"impTeamA\"}\n"
+            + "{\"username\":\"imp3\",\"age\":\n"
+            + "{\"username\":\"imp4\",\"age\":-1}\n"
+            + "\n"
+            + "{\"username\":\"imp5\"}\n";
+        
+        MemberImportResult result = memberImporter.importMembers(stream(ndjson), MemberImporter.Format.NDJSON);
+        
+        assertThat(result.getAccepted()).isEqualTo(3);
+        assertThat(result.getTeamsCreated()).isEqualTo(1);
+        assertThat(result.getRejectedRows()).extracting("line").containsExactly(3L, 4L);
+        
+        List<Tuple> imported = imported();
+        assertThat(imported).extracting(t -> t.get(member.username)).containsExactly("imp1", "imp2", "imp5");
+        assertThat(imported.get(0).get(team.id)).isEqualTo(imported.get(1).get(team.id));
+    }
+    
+    private List<Tuple> imported() {
+        return transactionTemplate.execute(status -> queryFactory
+            .select(member.username, member.age, team.id, team.name)
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(member.username.startsWith("imp"))
+            .orderBy(member.username.asc())
+            .fetch());
+    }
+    
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
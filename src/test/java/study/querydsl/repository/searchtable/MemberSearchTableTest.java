@@ -0,0 +1,146 @@
+package study.querydsl.repository.searchtable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.BulkQueryExecutor;
+
+/**
+ * member_search 는 커밋된 트랜잭션 기준으로 맞는지 확인하므로 트랜잭션 없이 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest(properties = {"member.search-table.enabled=true", "member.search-table.endpoints=v2"})
+class MemberSearchTableTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    BulkQueryExecutor bulkQueryExecutor;
+    
+    @Autowired
+    MemberRepository memberRepository;
+    
+    @Autowired
+    MemberSearchTable memberSearchTable;
+    
+    @Autowired
+    MemberSearchTableRepository memberSearchTableRepository;
+    
+    Long teamAId;
+    Long teamBId;
+    Long member1Id;
+    
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("stTeamA");
+            Team teamB = new Team("stTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            
+            Member member1 = new Member("st1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("st2", 20, teamA));
+            em.persist(new Member("st3", 30, teamB));
+            em.persist(new Member("st4", 40));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            member1Id = member1.getId();
+        });
+    }
+    
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            bulkQueryExecutor.execute(Member.class, queryFactory.delete(member).where(member.username.startsWith("st")));
+            queryFactory.delete(team).where(team.name.startsWith("stTeam")).execute();
+        });
+    }
+    
+    @Test
+    public void followsEntityChanges() {
+        assertSameAsSource();
+        assertThat(memberSearchTable.serves("v2")).isTrue();
+        assertThat(memberSearchTable.serves("v3")).isFalse();
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            member1.setAge(11);
+            member1.changeTeam(em.find(Team.class, teamBId));
+        });
+        assertSameAsSource();
+        
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamAId).setName("stTeamRenamed"));
+        assertSameAsSource();
+        
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, member1Id)));
+        assertSameAsSource();
+        
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("stTeamRenamed");
+        Page<MemberTeamDto> page = memberSearchTableRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getContent()).extracting("username").containsExactly("st2");
+    }
+    
+    @Test
+    public void rollbackLeavesTableUntouched() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.find(Member.class, member1Id).setAge(99);
+            em.flush();
+            status.setRollbackOnly();
+        });
+        
+        assertThat(memberSearchTableRepository.search(condition())).extracting("age").contains(10).doesNotContain(99);
+    }
+    
+    @Test
+    public void followsBulkChangesAndRebuild() {
+        transactionTemplate.executeWithoutResult(status -> bulkQueryExecutor.execute(Member.class,
+            queryFactory.update(member).set(member.age, member.age.add(100)).where(member.username.startsWith("st"))));
+        assertSameAsSource();
+        
+        jdbcTemplate.update("delete from member_search");
+        assertThat(memberSearchTableRepository.search(condition())).isEmpty();
+        assertThat(memberSearchTable.rebuild()).isGreaterThanOrEqualTo(4);
+        assertSameAsSource();
+    }
+    
+    private MemberSearchCondition condition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("st");
+        return condition;
+    }
+    
+    private void assertSameAsSource() {
+        assertThat(memberSearchTableRepository.search(condition()))
+            .usingFieldByFieldElementComparator()
+            .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition()));
+    }
+}
@@ -0,0 +1,153 @@
+package study.querydsl.repository.shard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+@SpringBootTest(properties = {
+    "member.sharding.enabled=true",
+    "member.sharding.endpoints=v2",
+    "member.sharding.urls=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,"
+        + "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,"
+        + "jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureMockMvc
+class ShardedMemberRepositoryTest {
+    
+    @Autowired
+    MockMvc mockMvc;
+    
+    @Autowired
+    MemberShards shards;
+    
+    @Autowired
+    ShardedMemberRepository shardedMemberRepository;
+    
+    List<Long> teamIds = new ArrayList<>();
+    List<Long> memberIds = new ArrayList<>();
+    
+    @BeforeEach
+    void before() {
+        for (String name : Arrays.asList("shardTeamA", "shardTeamB", "shardTeamC")) {
+            teamIds.add(shards.saveTeam(name));
+        }
+        for (int i = 0; i < 30; i++) {
+            Long teamId = i % 10 == 9 ? null : teamIds.get(i % 3);
+            memberIds.add(shards.saveMember("shard_" + i, i, teamId));
+        }
+    }
+    
+    @AfterEach
+    void after() {
+        shards.scatter(shards.shardsFor(null), jdbc -> jdbc.update("delete from member")
+            + jdbc.update("delete from team"));
+        shards.reloadTeamDirectory();
+    }
+    
+    @Test
+    public void searchMergesAllShardsInIdOrder() {
+        assertThat(teamIds.stream().map(shards::shardOf).distinct().count()).isGreaterThan(1);
+        
+        List<MemberTeamDto> result = shardedMemberRepository.search(new MemberSearchCondition());
+        assertThat(result).extracting("memberId").containsExactlyElementsOf(memberIds);
+        assertThat(result.get(1).getTeamName()).isEqualTo("shardTeamB");
+        assertThat(result.get(9).getTeamId()).isNull();
+    }
+    
+    @Test
+    public void paging() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(5);
+        
+        Page<MemberTeamDto> page = shardedMemberRepository.searchPageSimple(condition, PageRequest.of(2, 7));
+        assertThat(page.getTotalElements()).isEqualTo(25);
+        assertThat(page.getContent()).extracting("memberId")
+            .containsExactlyElementsOf(memberIds.subList(5 + 14, 5 + 21));
+        
+        Page<MemberTeamDto> last = shardedMemberRepository.searchPageComplex(condition, PageRequest.of(3, 7));
+        assertThat(last.getTotalElements()).isEqualTo(25);
+        assertThat(last.getContent()).extracting("memberId")
+            .containsExactlyElementsOf(memberIds.subList(5 + 21, 30));
+    }
+    
+    @Test
+    public void teamNameRoutesToSingleShard() {
+        assertThat(shards.shardsFor("shardTeamB")).containsExactly(shards.shardOf(teamIds.get(1)));
+        assertThat(shards.shardsFor("unknown")).isEmpty();
+        
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("shardTeamB");
+        List<MemberTeamDto> result = shardedMemberRepository.search(condition);
+        assertThat(result).hasSize(9).allMatch(dto -> dto.getTeamName().equals("shardTeamB"));
+        
+        condition.setTeamName("unknown");
+        assertThat(shardedMemberRepository.search(condition)).isEmpty();
+    }
+    
+    @Test
+    public void usernamePrefixEscapesWildcards() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("shard_2");
+        assertThat(shardedMemberRepository.search(condition)).extracting("username")
+            .containsExactly("shard_2", "shard_20", "shard_21", "shard_22", "shard_23", "shard_24",
+                "shard_25", "shard_26", "shard_27", "shard_28", "shard_29");
+        
+        condition.setUsernamePrefix("shard%");
+        assertThat(shardedMemberRepository.search(condition)).isEmpty();
+    }
+    
+    /**
+     * member.sharding.endpoints 에 있는 엔드포인트만 샤드에서 조회하고, 샤드 저장은 ETag를 바꾼다.
+     */
+    @Test
+    public void controllerRoutesConfiguredEndpoint() throws Exception {
+        String etag = mockMvc.perform(get("/v2/members").param("usernamePrefix", "shard_").param("size", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(30))
+            .andExpect(jsonPath("$.content[1].teamName").value("shardTeamB"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        
+        mockMvc.perform(get("/v3/members").param("usernamePrefix", "shard_"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(0));
+        
+        memberIds.add(shards.saveMember("shard_30", 30, teamIds.get(0)));
+        mockMvc.perform(get("/v2/members").param("usernamePrefix", "shard_").param("size", "5")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(31));
+    }
+    
+    @Test
+    public void mergeSkipsOffsetAcrossRuns() {
+        List<List<MemberTeamDto>> runs = Arrays.asList(dtos(1, 4, 7), dtos(2, 5), dtos(), dtos(3, 6, 8, 9));
+        assertThat(ShardedMemberRepository.merge(runs, 2, 4)).extracting("memberId")
+            .containsExactly(3L, 4L, 5L, 6L);
+    }
+    
+    private List<MemberTeamDto> dtos(long... ids) {
+        return Arrays.stream(ids)
+            .mapToObj(id -> new MemberTeamDto(id, "m" + id, 0, null, null))
+            .sorted(Comparator.comparing(MemberTeamDto::getMemberId))
+            .collect(Collectors.toList());
+    }
+}
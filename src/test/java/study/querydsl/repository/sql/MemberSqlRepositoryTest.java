@@ -0,0 +1,136 @@
+package study.querydsl.repository.sql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+@SpringBootTest
+@Transactional
+class MemberSqlRepositoryTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    MemberRepository memberRepository;
+    
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+    
+    Team teamA;
+    
+    @BeforeEach
+    void before() {
+        teamA = new Team("sqlTeamA");
+        Team teamB = new Team("sqlTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("sqlMember" + i, i * 5, i % 5 == 0 ? null : (i % 2 == 0 ? teamA : teamB)));
+        }
+        em.flush();
+        em.clear();
+    }
+    
+    @Test
+    public void sameResultAsJpa() {
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernamePrefix("sqlMember");
+        
+        MemberSearchCondition teamAge = new MemberSearchCondition();
+        teamAge.setTeamName("sqlTeamB");
+        teamAge.setAgeGoe(20);
+        teamAge.setAgeLoe(80);
+        
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("sqlMember5");
+        
+        for (MemberSearchCondition condition : List.of(prefix, teamAge, username)) {
+            assertThat(memberSqlRepository.search(condition))
+                .usingFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+        }
+        
+        List<MemberTeamDto> result = memberSqlRepository.search(teamAge);
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("sqlMember7", "sqlMember9",
+            "sqlMember11", "sqlMember13");
+        assertThat(result).extracting("teamName").containsOnly("sqlTeamB");
+        assertThat(memberSqlRepository.search(username).get(0).getTeamId()).isNull();
+    }
+    
+    @Test
+    public void paging() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("sqlMember");
+        
+        Page<MemberTeamDto> simple = memberSqlRepository.searchPageSimple(condition, PageRequest.of(1, 6));
+        assertThat(simple.getTotalElements()).isEqualTo(20);
+        assertThat(simple.getContent()).hasSize(6);
+        
+        Page<MemberTeamDto> complex = memberSqlRepository.searchPageComplex(condition, PageRequest.of(3, 6));
+        assertThat(complex.getTotalElements()).isEqualTo(20);
+        assertThat(complex.getContent()).hasSize(2);
+        
+        condition.setTeamName("sqlTeamA");
+        assertThat(memberSqlRepository.searchPageSimple(condition, PageRequest.of(0, 3)).getTotalElements())
+            .isEqualTo(memberRepository.searchPageSimple(condition, PageRequest.of(0, 3)).getTotalElements())
+            .isEqualTo(8);
+        
+        Page<MemberTeamDto> cached = memberSqlRepository.searchPage(condition, PageRequest.of(0, 3), () -> 100);
+        assertThat(cached.getTotalElements()).isEqualTo(100);
+    }
+    
+    @Test
+    public void rangeAndColumns() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("sqlMember");
+        
+        MemberTeamColumns columns = memberSqlRepository.searchColumns(condition);
+        assertThat(columns.size()).isEqualTo(20);
+        assertThat(columns.teamCount()).isEqualTo(2);
+        assertThat(columns.toDtos())
+            .usingFieldByFieldElementComparator()
+            .containsExactlyElementsOf(memberRepository.searchColumns(condition).toDtos());
+        
+        long fromId = columns.memberId(5);
+        long toId = columns.memberId(10);
+        assertThat(memberSqlRepository.searchRange(condition, fromId, toId))
+            .usingFieldByFieldElementComparator()
+            .containsExactlyElementsOf(memberRepository.searchRange(condition, fromId, toId));
+    }
+    
+    /**
+     * 같은 트랜잭션에서 flush 되지 않은 변경도 보여야 한다.
+     */
+    @Test
+    public void seesUnflushedChanges() {
+        Team team = em.find(Team.class, teamA.getId());
+        em.persist(new Member("sqlMemberNew", 99, team));
+        team.setName("sqlTeamRenamed");
+        
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("sqlTeamRenamed");
+        assertThat(memberSqlRepository.search(condition)).extracting("username")
+            .hasSize(9)
+            .contains("sqlMemberNew");
+    }
+    
+    @Test
+    public void disabledByDefault() {
+        assertThat(memberSqlRepository.serves("v2")).isFalse();
+    }
+}
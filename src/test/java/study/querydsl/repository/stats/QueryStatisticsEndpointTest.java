@@ -0,0 +1,110 @@
+package study.querydsl.repository.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+import study.querydsl.repository.stats.QueryStatisticsReport.MethodReport;
+import study.querydsl.repository.stats.QueryStatisticsReport.QueryReport;
+
+@SpringBootTest
+@Transactional
+class QueryStatisticsEndpointTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    MemberRepository memberRepository;
+    
+    @Autowired
+    MemberTestRepository memberTestRepository;
+    
+    @Autowired
+    QueryStatisticsEndpoint endpoint;
+    
+    @Autowired
+    QueryStatisticsControlEndpoint control;
+    
+    @BeforeEach
+    void before() {
+        Team team = new Team("statsTeam");
+        em.persist(team);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("statsMember" + i, i, team));
+        }
+        em.flush();
+        em.clear();
+        control.enable(true);
+        control.clear();
+    }
+    
+    @AfterEach
+    void after() {
+        control.enable(false);
+    }
+    
+    @Test
+    public void breakdownByRepositoryMethod() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("statsMember");
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 2));
+        memberTestRepository.applyPagination2(condition, PageRequest.of(0, 2));
+        memberTestRepository.applyPagination2(condition, PageRequest.of(1, 2));
+        
+        QueryStatisticsReport report = endpoint.report(null);
+        assertThat(report.isEnabled()).isTrue();
+        assertThat(report.getQueryExecutionCount()).isGreaterThanOrEqualTo(6);
+        assertThat(report.getQueries())
+            .flatExtracting(QueryReport::getOrigins)
+            .contains("MemberRepositoryImpl.searchPageSimple > MemberRepositoryImpl.searchPageSimpleStored",
+                "MemberTestRepository.applyPagination2 > Querydsl4RepositorySupport.applyPagination");
+        
+        // 내용 쿼리와 count 쿼리가 한 메서드로 모인다.
+        assertThat(report.getMethods())
+            .filteredOn(method -> method.getMethod().equals("MemberTestRepository.applyPagination2"))
+            .singleElement()
+            .satisfies(method -> {
+                assertThat(method.getQueries()).isEqualTo(2);
+                assertThat(method.getExecutionCount()).isEqualTo(4);
+            });
+        assertThat(report.getMethods()).extracting(MethodReport::getMethod)
+            .contains("MemberRepositoryImpl.searchPageSimple");
+        assertThat(report.getMethods()).isSortedAccordingTo(
+            (a, b) -> Long.compare(b.getTotalTime(), a.getTotalTime()));
+        
+        assertThat(endpoint.report(1).getQueries()).hasSize(1);
+    }
+    
+    @Test
+    public void disable() {
+        control.enable(false);
+        memberTestRepository.basicSelect();
+        QueryStatisticsReport report = endpoint.report(null);
+        assertThat(report.isEnabled()).isFalse();
+        assertThat(report.getQueryExecutionCount()).isZero();
+    }
+    
+    @Test
+    public void simpleName() {
+        assertThat(QueryOriginStatistics.simpleName(
+            "study.querydsl.repository.MemberRepositoryImpl#lambda$searchPageSimple$2"))
+            .isEqualTo("MemberRepositoryImpl.searchPageSimple");
+        assertThat(QueryOriginStatistics.simpleName(
+            "study.querydsl.repository.support.Querydsl4RepositorySupport#applyPagination"))
+            .isEqualTo("Querydsl4RepositorySupport.applyPagination");
+        assertThat(QueryOriginStatistics.simpleName("study.querydsl.web.Outer$Inner#run"))
+            .isEqualTo("Outer.run");
+    }
+}
@@ -0,0 +1,119 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.BulkJobCheckpoint;
+import study.querydsl.entity.Member;
+
+/**
+ * 청크마다 별도 트랜잭션으로 커밋하므로 이 테스트는 트랜잭션 없이 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest
+class ChunkedBulkExecutorTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    ChunkedBulkExecutor chunkedBulkExecutor;
+    
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 1; i <= 12; i++) {
+                em.persist(new Member("chunk" + i, i));
+            }
+        });
+    }
+    
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("chunk")).execute();
+            BulkJobCheckpoint checkpoint = em.find(BulkJobCheckpoint.class, "test-delete");
+            if (checkpoint != null) {
+                em.remove(checkpoint);
+            }
+        });
+    }
+    
+    @Test
+    public void deleteInChunks() {
+        BulkProgress progress = chunkedBulkExecutor.execute("test-delete", member, member.id,
+            range -> queryFactory.delete(member)
+                .where(member.username.startsWith("chunk"), member.age.gt(6), range),
+            ChunkedBulkOptions.defaults().chunkSize(5));
+        
+        assertThat(progress.getStatus()).isEqualTo(BulkProgress.Status.COMPLETED);
+        assertThat(progress.getAffectedRows()).isEqualTo(6);
+        assertThat(progress.getChunks()).isGreaterThanOrEqualTo(3);
+        assertThat(remainingAges()).containsExactly(1, 2, 3, 4, 5, 6);
+    }
+    
+    @Test
+    public void resumeAfterInterrupt() {
+        List<Long> chunkEnds = new ArrayList<>();
+        BulkProgress interrupted = chunkedBulkExecutor.execute("test-delete", member, member.id,
+            range -> queryFactory.update(member)
+                .set(member.age, member.age.add(100))
+                .where(member.username.startsWith("chunk"), range),
+            ChunkedBulkOptions.defaults().chunkSize(5).onProgress(progress -> {
+                chunkEnds.add(progress.getLastId());
+                Thread.currentThread().interrupt();
+            }));
+        Thread.interrupted();
+        
+        assertThat(interrupted.getStatus()).isEqualTo(BulkProgress.Status.INTERRUPTED);
+        assertThat(interrupted.getChunks()).isEqualTo(1);
+        
+        BulkProgress resumed = chunkedBulkExecutor.execute("test-delete", member, member.id,
+            range -> queryFactory.update(member)
+                .set(member.age, member.age.add(100))
+                .where(member.username.startsWith("chunk"), range),
+            ChunkedBulkOptions.defaults().chunkSize(5));
+        
+        assertThat(resumed.getStatus()).isEqualTo(BulkProgress.Status.COMPLETED);
+        assertThat(resumed.getResumedAfterId()).isEqualTo(chunkEnds.get(0));
+        assertThat(resumed.getTotalAffectedRows()).isEqualTo(12);
+        // 이어서 실행해도 같은 행을 두 번 갱신하지 않는다
+        assertThat(remainingAges()).allMatch(age -> age > 100 && age <= 112).hasSize(12);
+    }
+    
+    @Test
+    public void throttle() {
+        BulkProgress progress = chunkedBulkExecutor.execute("test-delete", member, member.id,
+            range -> queryFactory.delete(member)
+                .where(member.username.startsWith("chunk"), range),
+            ChunkedBulkOptions.defaults().chunkSize(5).maxRowsPerSecond(40));
+        
+        // 12행 / 초당 40행 = 최소 300ms
+        assertThat(progress.getAffectedRows()).isEqualTo(12);
+        assertThat(progress.getElapsed().toMillis()).isGreaterThanOrEqualTo(250);
+    }
+    
+    private List<Integer> remainingAges() {
+        return transactionTemplate.execute(status -> queryFactory
+            .select(member.age)
+            .from(member)
+            .where(member.username.startsWith("chunk"))
+            .orderBy(member.age.asc())
+            .fetch());
+    }
+}
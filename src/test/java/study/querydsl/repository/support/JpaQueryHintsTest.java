@@ -0,0 +1,60 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.time.Duration;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.Query;
+import org.hibernate.jpa.QueryHints;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+@SpringBootTest
+@Transactional
+class JpaQueryHintsTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Test
+    public void applyTo() {
+        JpaQueryHints hints = JpaQueryHints.defaults()
+            .fetchSize(500)
+            .timeout(Duration.ofSeconds(3))
+            .flushMode(FlushModeType.COMMIT)
+            .readOnly()
+            .cacheable("member-search")
+            .comment("hints test");
+        
+        JPAQuery<Member> query = hints.applyTo(new JPAQueryFactory(em).selectFrom(member));
+        Query jpaQuery = query.createQuery();
+        Map<String, Object> applied = jpaQuery.getHints();
+        
+        assertThat(applied).containsEntry(QueryHints.HINT_FETCH_SIZE, 500);
+        assertThat(applied).containsEntry(QueryHints.SPEC_HINT_TIMEOUT, 3000);
+        assertThat(applied).containsEntry(QueryHints.HINT_READONLY, true);
+        assertThat(applied).containsEntry(QueryHints.HINT_CACHEABLE, true);
+        assertThat(applied).containsEntry(QueryHints.HINT_CACHE_REGION, "member-search");
+        assertThat(applied).containsEntry(QueryHints.HINT_COMMENT, "hints test");
+        assertThat(jpaQuery.getFlushMode()).isEqualTo(FlushModeType.COMMIT);
+    }
+    
+    @Test
+    public void immutable() {
+        JpaQueryHints base = JpaQueryHints.defaults().fetchSize(100);
+        JpaQueryHints readOnly = base.readOnly();
+        
+        assertThat(base.isReadOnly()).isFalse();
+        assertThat(readOnly.isReadOnly()).isTrue();
+        assertThat(readOnly.getFetchSize()).isEqualTo(100);
+        assertThat(JpaQueryHints.defaults().getFetchSize()).isNull();
+    }
+}
@@ -0,0 +1,42 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+@Transactional
+class UnflushedChangesTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Test
+    public void onlyTargetType() {
+        Team team = new Team("unflushedTeam");
+        em.persist(team);
+        Member member = new Member("unflushed1", 10, team);
+        em.persist(member);
+        assertThat(UnflushedChanges.exist(em, Team.class)).isTrue();
+        assertThat(UnflushedChanges.exist(em, Member.class)).isTrue();
+        em.flush();
+        assertThat(UnflushedChanges.exist(em, Team.class, Member.class)).isFalse();
+        
+        member.setAge(20);
+        assertThat(UnflushedChanges.exist(em, Member.class)).isTrue();
+        assertThat(UnflushedChanges.exist(em, Team.class)).isFalse();
+        em.flush();
+        
+        em.remove(member);
+        assertThat(UnflushedChanges.exist(em, Member.class)).isTrue();
+        assertThat(UnflushedChanges.exist(em, Team.class)).isFalse();
+        em.flush();
+        assertThat(UnflushedChanges.exist(em, Member.class)).isFalse();
+    }
+}
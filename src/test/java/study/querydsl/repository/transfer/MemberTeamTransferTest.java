@@ -0,0 +1,181 @@
+package study.querydsl.repository.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.Arrays;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkQueryExecutor;
+
+/**
+ * chunk-size=2 로 청크가 여러 개 나오게 하고, 커밋된 결과를 확인하므로 트랜잭션 없이 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest(properties = "member.transfer.chunk-size=2")
+@AutoConfigureMockMvc
+class MemberTeamTransferTest {
+    
+    @Autowired
+    MockMvc mockMvc;
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    BulkQueryExecutor bulkQueryExecutor;
+    
+    @Autowired
+    MemberTeamTransfer memberTeamTransfer;
+    
+    Long teamAId;
+    Long teamBId;
+    Long member1Id;
+    Long member2Id;
+    Long member3Id;
+    Long member4Id;
+    
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("xferTeamA");
+            Team teamB = new Team("xferTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            
+            Member member1 = new Member("xfer1", 10, teamA);
+            Member member2 = new Member("xfer2", 20, teamA);
+            Member member3 = new Member("xfer3", 30, teamA);
+            Member member4 = new Member("xfer4", 40);
+            em.persist(member1);
+            em.persist(member2);
+            em.persist(member3);
+            em.persist(member4);
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            member1Id = member1.getId();
+            member2Id = member2.getId();
+            member3Id = member3.getId();
+            member4Id = member4.getId();
+        });
+    }
+    
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            bulkQueryExecutor.execute(Member.class, queryFactory.delete(member).where(member.username.startsWith("xfer")));
+            queryFactory.delete(team).where(team.name.startsWith("xferTeam")).execute();
+        });
+    }
+    
+    @Test
+    public void transferByIds() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = em.find(Team.class, teamAId);
+            Team teamB = em.find(Team.class, teamBId);
+            Member member1 = em.find(Member.class, member1Id);
+            assertThat(teamA.getMembers()).hasSize(3);
+            assertThat(teamB.getMembers()).isEmpty();
+            
+            MemberTransferResult result = memberTeamTransfer.transfer(
+                Arrays.asList(member4Id, member1Id, member2Id, member1Id, -1L), teamBId);
+            assertThat(result.getMoved()).isEqualTo(3);
+            assertThat(result.getChunks()).isEqualTo(2);
+            assertThat(result.getFromTeamIds()).containsExactly(teamAId);
+            
+            // 이미 올라와 있던 엔티티와 컬렉션도 바뀐 팀을 본다.
+            assertThat(member1.getTeam().getId()).isEqualTo(teamBId);
+            assertThat(teamA.getMembers()).extracting("username").containsExactly("xfer3");
+            assertThat(teamB.getMembers()).extracting("username")
+                .containsExactlyInAnyOrder("xfer1", "xfer2", "xfer4");
+        });
+        
+        assertThat(teamOf(member1Id)).isEqualTo(teamBId);
+        assertThat(teamOf(member2Id)).isEqualTo(teamBId);
+        assertThat(teamOf(member3Id)).isEqualTo(teamAId);
+        assertThat(teamOf(member4Id)).isEqualTo(teamBId);
+    }
+    
+    @Test
+    public void transferByPredicate() {
+        MemberTransferResult result = memberTeamTransfer.transfer(
+            member.team.name.eq("xferTeamA").and(member.age.goe(20)), teamBId);
+        assertThat(result.getMoved()).isEqualTo(2);
+        assertThat(result.getFromTeamIds()).containsExactly(teamAId);
+        assertThat(teamOf(member1Id)).isEqualTo(teamAId);
+        assertThat(teamOf(member2Id)).isEqualTo(teamBId);
+        assertThat(teamOf(member3Id)).isEqualTo(teamBId);
+        
+        // 이미 대상 팀에 있는 회원은 옮기지 않는다.
+        MemberTransferResult again = memberTeamTransfer.transfer(member.username.startsWith("xfer"), teamBId);
+        assertThat(again.getMoved()).isEqualTo(2);
+        assertThat(again.getFromTeamIds()).containsExactly(teamAId);
+    }
+    
+    @Test
+    public void doesNotLoadMembersCollection() {
+        transactionTemplate.executeWithoutResult(status -> {
+            memberTeamTransfer.transfer(Arrays.asList(member1Id), teamBId);
+            Team teamA = em.find(Team.class, teamAId);
+            assertThat(Hibernate.isInitialized(teamA.getMembers())).isFalse();
+        });
+    }
+    
+    @Test
+    public void unknownTeam() {
+        assertThatThrownBy(() -> memberTeamTransfer.transfer(Arrays.asList(member1Id), -1L))
+            .isInstanceOf(EntityNotFoundException.class);
+        assertThat(teamOf(member1Id)).isEqualTo(teamAId);
+    }
+    
+    @Test
+    public void endpointStatus() throws Exception {
+        mockMvc.perform(post("/v1/teams/{teamId}/members", teamBId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + member1Id + ", " + member2Id + "]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.moved").value(2));
+        
+        mockMvc.perform(post("/v1/teams/{teamId}/members", -1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + member3Id + "]"))
+            .andExpect(status().isNotFound());
+        
+        mockMvc.perform(post("/v1/teams/{teamId}/members", teamBId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + member3Id + ", null]"))
+            .andExpect(status().isBadRequest());
+        assertThat(teamOf(member3Id)).isEqualTo(teamAId);
+    }
+    
+    private Long teamOf(Long memberId) {
+        return queryFactory
+            .select(member.team.id)
+            .from(member)
+            .where(member.id.eq(memberId))
+            .fetchOne();
+    }
+}
@@ -0,0 +1,171 @@
+package study.querydsl.repository.writebehind;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.TableVersions;
+
+/**
+ * 주기적 flush가 끼어들지 않도록 간격을 길게 잡고 flush()를 직접 호출한다.
+ */
+@SpringBootTest(properties = "member.write-behind.flush-interval-ms=600000")
+class MemberAgeWriteBehindTest {
+    
+    @Autowired
+    EntityManager em;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    MemberRepository memberRepository;
+    
+    @Autowired
+    MemberAgeWriteBehind writeBehind;
+    
+    @Autowired
+    TableVersions tableVersions;
+    
+    Long memberId;
+    
+    @BeforeEach
+    void before() {
+        memberId = transactionTemplate.execute(status -> {
+            Member wb = new Member("wb1", 10);
+            em.persist(wb);
+            return wb.getId();
+        });
+    }
+    
+    @AfterEach
+    void after() {
+        writeBehind.flush();
+        transactionTemplate.executeWithoutResult(status ->
+            queryFactory.delete(member).where(member.username.startsWith("wb")).execute());
+    }
+    
+    @Test
+    public void coalesceAndFlush() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 100; i++) {
+            executor.execute(() -> writeBehind.increment(memberId, 1));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        
+        assertThat(writeBehind.pending(memberId)).isEqualTo(100);
+        assertThat(storedAge()).isEqualTo(10);
+        
+        assertThat(writeBehind.flush()).isGreaterThanOrEqualTo(1);
+        assertThat(writeBehind.pending(memberId)).isZero();
+        assertThat(storedAge()).isEqualTo(110);
+    }
+    
+    @Test
+    public void readYourWrites() {
+        writeBehind.increment(memberId, 5);
+        writeBehind.increment(memberId, -2);
+        
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("wb1");
+        List<MemberTeamDto> result = memberRepository.search(condition);
+        assertThat(result).extracting("age").containsExactly(13);
+        assertThat(storedAge()).isEqualTo(10);
+        
+        writeBehind.flush();
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactly(13);
+    }
+    
+    /**
+     * 조회 결과가 바로 바뀌므로 ETag에 쓰는 테이블 버전도 flush 전에 바뀌어야 한다.
+     */
+    @Test
+    public void incrementChangesTableVersion() {
+        long before = tableVersions.get(Member.class);
+        writeBehind.increment(memberId, 1);
+        assertThat(tableVersions.get(Member.class)).isGreaterThan(before);
+    }
+    
+    @Test
+    public void ageConditionFlushesFirst() {
+        writeBehind.increment(memberId, 50);
+        
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("wb1");
+        condition.setAgeGoe(60);
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactly(60);
+        assertThat(writeBehind.pending(memberId)).isZero();
+    }
+    
+    /**
+     * 조회 도중 flush 가 커밋돼도 flush 는 조회를 기다리지 않고, 조회는 증감값을 두 번 더하거나 빠뜨리지 않는다.
+     */
+    @Test
+    public void flushDuringReadDoesNotWaitForRead() throws Exception {
+        writeBehind.increment(memberId, 5);
+        
+        CountDownLatch queried = new CountDownLatch(1);
+        CountDownLatch flushed = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<MemberTeamDto>> read = executor.submit(() -> writeBehind.read(condition, () -> {
+                List<MemberTeamDto> rows = List.of(new MemberTeamDto(memberId, "wb1", storedAge(), null, null));
+                if (queries.incrementAndGet() == 1) {
+                    queried.countDown();
+                    await(flushed);
+                }
+                return rows;
+            }));
+            
+            assertThat(queried.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(writeBehind.flush()).isEqualTo(1);
+            flushed.countDown();
+            
+            assertThat(read.get(10, TimeUnit.SECONDS)).extracting("age").containsExactly(15);
+            assertThat(queries.get()).isEqualTo(2);
+        } finally {
+            flushed.countDown();
+            executor.shutdownNow();
+        }
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private Integer storedAge() {
+        return transactionTemplate.execute(status -> queryFactory
+            .select(member.age)
+            .from(member)
+            .where(member.id.eq(memberId))
+            .fetchOne());
+    }
+}
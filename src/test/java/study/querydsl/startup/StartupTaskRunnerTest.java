@@ -0,0 +1,76 @@
+package study.querydsl.startup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class StartupTaskRunnerTest {
+    
+    static final CountDownLatch release = new CountDownLatch(1);
+    
+    @TestConfiguration
+    static class SlowTaskConfig {
+        
+        @Bean
+        @Order(-1)
+        StartupTask slowWarmup() {
+            return new StartupTask() {
+                @Override
+                public String getName() {
+                    return "slowWarmup";
+                }
+                
+                @Override
+                public void run() {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+        }
+    }
+    
+    @Autowired
+    MockMvc mockMvc;
+    
+    @Autowired
+    StartupTaskRunner startupTaskRunner;
+    
+    @Test
+    public void readinessWaitsForStartupTasks() throws Exception {
+        mockMvc.perform(get("/actuator/health/readiness"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(jsonPath("$.status").value("OUT_OF_SERVICE"))
+            .andExpect(jsonPath("$.components.startupTasks.details.slowWarmup.status").value("RUNNING"))
+            .andExpect(jsonPath("$.components.startupTasks.details.usernamePrefixIndex.status").value("PENDING"));
+        mockMvc.perform(get("/actuator/health/liveness"))
+            .andExpect(status().isOk());
+        
+        release.countDown();
+        for (int i = 0; i < 100 && !startupTaskRunner.isFinished(); i++) {
+            Thread.sleep(50);
+        }
+        
+        assertThat(startupTaskRunner.isFinished()).isTrue();
+        mockMvc.perform(get("/actuator/health/readiness"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("UP"))
+            .andExpect(jsonPath("$.components.startupTasks.details.usernamePrefixIndex.status").value("DONE"));
+    }
+}
@@ -0,0 +1,138 @@
+package study.querydsl.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.web.MemberSearchAdmission.CostClass;
+
+/**
+ * 대체 조회는 커밋된 데이터의 캐시(회원 수)를 쓰므로 이 테스트는 트랜잭션 없이 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest(properties = {
+    "member.admission.expensive-limit=1",
+    "member.admission.queue-timeout-ms=50",
+    "member.admission.downgrade-limit=2"
+})
+@AutoConfigureMockMvc
+class MemberSearchAdmissionTest {
+    
+    @Autowired
+    MockMvc mockMvc;
+    
+    @Autowired
+    MemberSearchAdmission admission;
+    
+    @Autowired
+    JPAQueryFactory queryFactory;
+    
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    EntityManager em;
+    
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CountDownLatch release = new CountDownLatch(1);
+    
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("adm" + i, i));
+            }
+        });
+    }
+    
+    @AfterEach
+    void after() throws Exception {
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        transactionTemplate.executeWithoutResult(status ->
+            queryFactory.delete(member).where(member.username.startsWith("adm")).execute());
+    }
+    
+    @Test
+    public void estimate() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        assertThat(admission.estimate(condition, null)).isEqualTo(CostClass.EXPENSIVE);
+        
+        condition.setAgeGoe(10);
+        assertThat(admission.estimate(condition, PageRequest.of(0, 20))).isEqualTo(CostClass.MODERATE);
+        assertThat(admission.estimate(condition, PageRequest.of(100, 20))).isEqualTo(CostClass.EXPENSIVE);
+        
+        condition.setUsernamePrefix("adm");
+        assertThat(admission.estimate(condition, PageRequest.of(0, 20))).isEqualTo(CostClass.CHEAP);
+        assertThat(admission.estimate(condition, PageRequest.of(100, 20))).isEqualTo(CostClass.MODERATE);
+    }
+    
+    @Test
+    public void downgradeUnfilteredSearchUnderLoad() throws Exception {
+        occupyExpensiveSlot();
+        long total = transactionTemplate.execute(status ->
+            queryFactory.select(member.count()).from(member).fetchOne());
+        
+        mockMvc.perform(get("/v1/members"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(MemberSearchAdmission.DOWNGRADED_HEADER, "true"))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+            .andExpect(jsonPath("$.length()").value(2));
+        
+        mockMvc.perform(get("/v2/members").param("size", "3"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(MemberSearchAdmission.DOWNGRADED_HEADER, "true"))
+            .andExpect(jsonPath("$.content.length()").value(3))
+            .andExpect(jsonPath("$.totalElements").value(total));
+        
+        mockMvc.perform(get("/v2/members").param("usernamePrefix", "adm"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(MemberSearchAdmission.DOWNGRADED_HEADER))
+            .andExpect(jsonPath("$.totalElements").value(5));
+    }
+    
+    @Test
+    public void rejectExpensiveSearchWithoutDowngrade() throws Exception {
+        occupyExpensiveSlot();
+        
+        mockMvc.perform(get("/v3/members").param("ageGoe", "0").param("page", "1000"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+    
+    private void occupyExpensiveSlot() throws InterruptedException {
+        CountDownLatch occupied = new CountDownLatch(1);
+        executor.execute(() -> admission.execute(CostClass.EXPENSIVE, () -> {
+            occupied.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }, null, new MockHttpServletResponse()));
+        assertThat(occupied.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}